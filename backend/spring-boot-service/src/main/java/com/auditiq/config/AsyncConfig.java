@@ -1,5 +1,8 @@
 package com.auditiq.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -23,4 +26,104 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * Ingestion pipeline stage: push spooled uploads to S3 (I/O bound)
+     */
+    @Bean(name = "documentStoreExecutor")
+    public ThreadPoolTaskExecutor documentStoreExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${documents.pipeline.store.threads:4}") int threads,
+            @Value("${documents.pipeline.store.queue-capacity:200}") int queueCapacity) {
+        return stageExecutor("store", threads, queueCapacity, meterRegistry);
+    }
+
+    /**
+     * Ingestion pipeline stage: text extraction (CPU bound)
+     */
+    @Bean(name = "documentExtractExecutor")
+    public ThreadPoolTaskExecutor documentExtractExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${documents.pipeline.extract.threads:2}") int threads,
+            @Value("${documents.pipeline.extract.queue-capacity:100}") int queueCapacity) {
+        return stageExecutor("extract", threads, queueCapacity, meterRegistry);
+    }
+
+    /**
+     * Ingestion pipeline stage: ML analysis of the extracted text
+     */
+    @Bean(name = "documentAnalyzeExecutor")
+    public ThreadPoolTaskExecutor documentAnalyzeExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${documents.pipeline.analyze.threads:2}") int threads,
+            @Value("${documents.pipeline.analyze.queue-capacity:100}") int queueCapacity) {
+        return stageExecutor("analyze", threads, queueCapacity, meterRegistry);
+    }
+
+    /**
+     * Bulk uploads: store + extract per archive entry. Admission is bounded by the
+     * bulk service's semaphore, so the queue only ever holds a handful of tasks.
+     */
+    @Bean(name = "documentBulkExecutor")
+    public ThreadPoolTaskExecutor documentBulkExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${documents.bulk.concurrency:4}") int concurrency) {
+        return stageExecutor("bulk", concurrency, concurrency, meterRegistry);
+    }
+
+    /**
+     * Relays streamed chat answers to SSE clients; each task lives for one whole answer
+     */
+    @Bean(name = "chatStreamExecutor")
+    public ThreadPoolTaskExecutor chatStreamExecutor(
+            @Value("${chat.stream.threads:16}") int threads,
+            @Value("${chat.stream.queue-capacity:32}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("AuditIQ-ChatStream-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Per-chunk Claude calls of chunked document analysis. The pool size is the global
+     * limit on chunks in flight, shared by every document being analysed.
+     */
+    @Bean(name = "chunkAnalysisExecutor")
+    public ThreadPoolTaskExecutor chunkAnalysisExecutor(
+            @Value("${analysis.chunked.max-concurrency:8}") int threads,
+            @Value("${analysis.chunked.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("AuditIQ-Chunk-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    private ThreadPoolTaskExecutor stageExecutor(String stage, int threads, int queueCapacity,
+                                                 MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("AuditIQ-Pipeline-" + stage + "-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        Gauge.builder("auditiq.pipeline.queue.depth", executor,
+                        e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Tasks waiting for a worker in an ingestion pipeline stage")
+                .tag("stage", stage)
+                .register(meterRegistry);
+        return executor;
+    }
+}
@@ -0,0 +1,24 @@
+package com.auditiq.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    /**
+     * Streaming responses (bulk upload results) can run for many minutes; the servlet
+     * container's default async timeout is 30 seconds
+     */
+    @Value("${web.async.request-timeout-minutes:60}")
+    private long asyncRequestTimeoutMinutes;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(Duration.ofMinutes(asyncRequestTimeoutMinutes).toMillis());
+    }
+}
@@ -2,6 +2,7 @@ package com.auditiq.controller;
 
 import com.auditiq.dto.AuditFindingDTO;
 import com.auditiq.dto.FindingsSummaryDTO;
+import com.auditiq.service.AnalysisResultCache;
 import com.auditiq.service.AuditFindingsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +21,9 @@ public class AuditFindingsController {
     @Autowired
     private AuditFindingsService auditFindingsService;
 
+    @Autowired
+    private AnalysisResultCache analysisCache;
+
     /**
      * Generate audit findings for an uploaded document
      */
@@ -92,4 +96,16 @@ public class AuditFindingsController {
                 ));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Drop all cached analyses (e.g. after changing the analysis prompt without bumping its version)
+     */
+    @DeleteMapping("/cache")
+    public ResponseEntity<Map<String, Object>> invalidateAnalysisCache() {
+        long removed = analysisCache.invalidateAll();
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "removed", removed
+        ));
+    }
+}
@@ -4,14 +4,24 @@ import com.auditiq.dto.ChatRequestDTO;
 import com.auditiq.model.ChatConversation;
 import com.auditiq.model.ChatMessage;
 import com.auditiq.service.ChatService;
+import com.auditiq.service.ClaudeService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -22,6 +32,16 @@ public class ChatController {
     @Autowired
     private ChatService chatService;
 
+    @Autowired
+    private ClaudeService claudeService;
+
+    @Autowired
+    @Qualifier("chatStreamExecutor")
+    private Executor chatStreamExecutor;
+
+    @Value("${chat.stream.timeout-minutes:10}")
+    private long streamTimeoutMinutes;
+
     /**
      * Send a chat message
      */
@@ -48,6 +68,120 @@ public class ChatController {
         }
     }
 
+    /**
+     * Send a chat message and stream the answer back as Server-Sent Events:
+     * "start" (conversationId), one "delta" per text chunk, then "done" once the
+     * assistant message is stored, or "error". If the client disconnects before the answer
+     * is stored, the question (and a conversation it started) is discarded too.
+     */
+    @PostMapping(value = "/message/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessage(@RequestBody ChatRequestDTO request, HttpServletResponse response) {
+        log.info("Received streamed chat message, conversationId: {}", request.getConversationId());
+        SseEmitter emitter = new SseEmitter(streamTimeoutMinutes * 60_000);
+        // Reverse proxies (nginx) must pass events through instead of buffering the response
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AtomicBoolean clientGone = new AtomicBoolean();
+        emitter.onTimeout(() -> clientGone.set(true));
+        emitter.onError(error -> clientGone.set(true));
+
+        ChatService.ChatTurn turn;
+        try {
+            turn = chatService.startStreamedMessage(
+                request.getMessage(),
+                request.getConversationId()
+            );
+        } catch (Exception e) {
+            log.error("Error starting streamed message", e);
+            sendErrorAndComplete(emitter, e.getMessage());
+            return emitter;
+        }
+
+        // The question is already stored: take it back out if no answer will be streamed
+        try {
+            chatStreamExecutor.execute(() -> relayAnswer(turn, emitter, clientGone));
+        } catch (RejectedExecutionException e) {
+            log.warn("Chat stream executor at capacity");
+            discardQuietly(turn);
+            sendErrorAndComplete(emitter, "Too many concurrent chat streams, please retry");
+        } catch (Exception e) {
+            log.error("Error starting streamed message", e);
+            discardQuietly(turn);
+            sendErrorAndComplete(emitter, e.getMessage());
+        }
+        return emitter;
+    }
+
+    private void relayAnswer(ChatService.ChatTurn turn, SseEmitter emitter, AtomicBoolean clientGone) {
+        ChatMessage saved = null;
+        try {
+            send(emitter, clientGone, "start", Map.of("conversationId", turn.conversationId()));
+
+            String answer = claudeService.chatStream(turn.messages(), turn.summary(),
+                text -> send(emitter, clientGone, "delta", Map.of("text", text)));
+
+            saved = chatService.completeStreamedMessage(turn.conversationId(), answer);
+            Map<String, Object> result = new HashMap<>();
+            result.put("conversationId", turn.conversationId());
+            result.put("messageId", saved.getId());
+            result.put("timestamp", saved.getCreatedAt());
+            send(emitter, clientGone, "done", result);
+            emitter.complete();
+
+        } catch (ClientGoneException e) {
+            log.info("Chat stream client disconnected, conversationId: {}", turn.conversationId());
+            if (saved == null) {
+                discardQuietly(turn);
+            }
+            emitter.complete();
+        } catch (Exception e) {
+            log.error("Error streaming message", e);
+            if (saved == null) {
+                discardQuietly(turn);
+            }
+            sendErrorAndComplete(emitter, e.getMessage());
+        }
+    }
+
+    private void discardQuietly(ChatService.ChatTurn turn) {
+        try {
+            chatService.discardTurn(turn);
+        } catch (Exception e) {
+            log.error("Could not discard unanswered message {}", turn.userMessageId(), e);
+        }
+    }
+
+    private static void send(SseEmitter emitter, AtomicBoolean clientGone, String event, Object data) {
+        if (clientGone.get()) {
+            throw new ClientGoneException();
+        }
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            clientGone.set(true);
+            throw new ClientGoneException();
+        }
+    }
+
+    private static void sendErrorAndComplete(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error")
+                .data(Map.of("error", message != null ? message : "Chat failed"), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Thrown out of the token callback to stop reading the upstream stream
+     */
+    private static class ClientGoneException extends RuntimeException {
+        ClientGoneException() {
+            super("SSE client disconnected", null, false, false);
+        }
+    }
+
     /**
      * Get conversation history
      */
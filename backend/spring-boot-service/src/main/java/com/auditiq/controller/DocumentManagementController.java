@@ -1,19 +1,42 @@
 package com.auditiq.controller;
 
 import com.auditiq.dto.AnalysisResultDTO;
+import com.auditiq.dto.BulkDeleteRequest;
+import com.auditiq.dto.BulkDeleteResult;
+import com.auditiq.dto.DirectUploadCompleteRequest;
+import com.auditiq.dto.DirectUploadRequest;
+import com.auditiq.dto.DirectUploadResponse;
+import com.auditiq.dto.DocumentSummary;
 import com.auditiq.dto.DocumentUploadResponse;
 import com.auditiq.model.AuditDocument;
 import com.auditiq.service.AIAnalysisService;
+import com.auditiq.service.DocumentBulkUploadService;
+import com.auditiq.service.DocumentDeletionService;
+import com.auditiq.service.DocumentIngestionPipeline;
 import com.auditiq.service.DocumentManagementService;
+import com.auditiq.service.S3StorageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controller for Document Management (Upload, Store, Retrieve, Delete)
@@ -27,9 +50,18 @@ public class DocumentManagementController {
 
     private final DocumentManagementService documentService;
     private final AIAnalysisService aiAnalysisService;
+    private final DocumentIngestionPipeline ingestionPipeline;
+    private final DocumentBulkUploadService bulkUploadService;
+    private final DocumentDeletionService deletionService;
+    private final S3StorageService storageService;
+
+    // "redirect" answers view/download with a 302 to a presigned S3 URL instead of proxying the bytes
+    @Value("${documents.download.mode:stream}")
+    private String downloadMode;
 
     /**
-     * Upload document to S3 and save to database
+     * Accept a document upload. Storage, text extraction and analysis continue in the
+     * background; poll GET /{id} for the processing status.
      */
     @PostMapping("/upload")
     public ResponseEntity<DocumentUploadResponse> uploadDocument(
@@ -40,7 +72,7 @@ public class DocumentManagementController {
         try {
             log.info("Upload request received: {} for standard: {}", file.getOriginalFilename(), standard);
 
-            AuditDocument document = documentService.uploadDocument(file, standard, uploadedBy);
+            AuditDocument document = ingestionPipeline.submit(file, standard, uploadedBy);
             
             DocumentUploadResponse response = DocumentUploadResponse.builder()
                     .id(document.getId())
@@ -52,17 +84,113 @@ public class DocumentManagementController {
                     .status(document.getStatus().name())
                     .uploadedBy(document.getUploadedBy())
                     .createdAt(document.getCreatedAt())
-                    .message("Document uploaded successfully")
+                    .message("Document accepted for processing")
                     .build();
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
 
+        } catch (RejectedExecutionException e) {
+            log.warn("Ingestion pipeline at capacity, rejecting upload: {}", file.getOriginalFilename());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (Exception e) {
             log.error("Error uploading document: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * Upload many documents at once: any number of files and/or zip archives.
+     * Files are stored and extracted in parallel; one NDJSON result line is streamed per file
+     * as soon as it finishes.
+     */
+    @PostMapping(value = "/bulk", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> bulkUpload(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam("standard") String standard,
+            @RequestParam(value = "uploadedBy", defaultValue = "system") String uploadedBy) {
+
+        // Reject an unknown standard up front instead of failing every file
+        AuditDocument.ComplianceStandard.valueOf(standard.toUpperCase().replace(" ", "_"));
+        log.info("Bulk upload request received: {} part(s) for standard: {}", files.size(), standard);
+
+        StreamingResponseBody body = out -> bulkUploadService.upload(files, standard, uploadedBy, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * Direct upload, step one: get presigned URL(s) so the browser can upload straight to S3
+     */
+    @PostMapping("/direct-upload")
+    public ResponseEntity<DirectUploadResponse> initiateDirectUpload(@RequestBody DirectUploadRequest request) {
+        try {
+            if (request.getFileName() == null || request.getFileSize() == null || request.getFileSize() < 0) {
+                return ResponseEntity.badRequest().build();
+            }
+            String s3Key = documentService.generateS3Key(request.getFileName());
+            DirectUploadResponse response = storageService.presignUpload(
+                    s3Key, request.getContentType(), request.getFileSize());
+            return ResponseEntity.ok(response);
+
+        } catch (UnsupportedOperationException e) {
+            log.warn("Direct upload requested but unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        } catch (Exception e) {
+            log.error("Error initiating direct upload: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Direct upload, step two: the bytes are in S3 - register the document and start
+     * extraction/analysis from the stored object. Poll GET /{id} for the processing status.
+     */
+    @PostMapping("/direct-upload/complete")
+    public ResponseEntity<DocumentUploadResponse> completeDirectUpload(@RequestBody DirectUploadCompleteRequest request) {
+        try {
+            // Only keys presigned here, and only once - never one that already backs a document
+            if (request.getS3Key() == null || request.getStandard() == null
+                    || !storageService.isValidUploadToken(request.getS3Key(), request.getUploadId(), request.getUploadToken())
+                    || documentService.isKeyReferenced(request.getS3Key())) {
+                return ResponseEntity.badRequest().build();
+            }
+            AuditDocument.ComplianceStandard.valueOf(request.getStandard().toUpperCase().replace(" ", "_"));
+
+            long size = storageService.completeUpload(request.getS3Key(), request.getUploadId(), request.getParts());
+            AuditDocument document = ingestionPipeline.submitStored(request.getS3Key(), size,
+                    request.getFileName(), request.getContentType(), request.getStandard(),
+                    request.getUploadedBy() != null ? request.getUploadedBy() : "system");
+
+            DocumentUploadResponse response = DocumentUploadResponse.builder()
+                    .id(document.getId())
+                    .fileName(document.getFileName())
+                    .fileType(document.getFileType())
+                    .fileSize(document.getFileSize())
+                    .s3Url(document.getS3Url())
+                    .standard(document.getStandard().name())
+                    .status(document.getStatus().name())
+                    .uploadedBy(document.getUploadedBy())
+                    .createdAt(document.getCreatedAt())
+                    .message("Document accepted for processing")
+                    .build();
+
+            return ResponseEntity.accepted().body(response);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid direct upload completion for {}: {}", request.getS3Key(), e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (UnsupportedOperationException e) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        } catch (RejectedExecutionException e) {
+            log.warn("Ingestion pipeline at capacity, rejecting direct upload: {}", request.getS3Key());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            log.error("Error completing direct upload: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * Analyze a stored document by ID
      */
@@ -96,8 +224,8 @@ public class DocumentManagementController {
      * Get all documents
      */
     @GetMapping
-    public ResponseEntity<List<AuditDocument>> getAllDocuments() {
-        List<AuditDocument> documents = documentService.getAllDocuments();
+    public ResponseEntity<List<DocumentSummary>> getAllDocuments() {
+        List<DocumentSummary> documents = documentService.getAllDocuments();
         return ResponseEntity.ok(documents);
     }
 
@@ -105,9 +233,9 @@ public class DocumentManagementController {
      * Get documents by standard
      */
     @GetMapping("/standard/{standard}")
-    public ResponseEntity<List<AuditDocument>> getDocumentsByStandard(@PathVariable String standard) {
+    public ResponseEntity<List<DocumentSummary>> getDocumentsByStandard(@PathVariable String standard) {
         try {
-            List<AuditDocument> documents = documentService.getDocumentsByStandard(standard);
+            List<DocumentSummary> documents = documentService.getDocumentsByStandard(standard);
             return ResponseEntity.ok(documents);
         } catch (Exception e) {
             log.error("Error getting documents by standard: {}", e.getMessage());
@@ -119,9 +247,9 @@ public class DocumentManagementController {
      * Get documents by status
      */
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<AuditDocument>> getDocumentsByStatus(@PathVariable String status) {
+    public ResponseEntity<List<DocumentSummary>> getDocumentsByStatus(@PathVariable String status) {
         try {
-            List<AuditDocument> documents = documentService.getDocumentsByStatus(status);
+            List<DocumentSummary> documents = documentService.getDocumentsByStatus(status);
             return ResponseEntity.ok(documents);
         } catch (Exception e) {
             log.error("Error getting documents by status: {}", e.getMessage());
@@ -133,8 +261,8 @@ public class DocumentManagementController {
      * Get recent documents
      */
     @GetMapping("/recent")
-    public ResponseEntity<List<AuditDocument>> getRecentDocuments() {
-        List<AuditDocument> documents = documentService.getRecentDocuments();
+    public ResponseEntity<List<DocumentSummary>> getRecentDocuments() {
+        List<DocumentSummary> documents = documentService.getRecentDocuments();
         return ResponseEntity.ok(documents);
     }
 
@@ -142,16 +270,22 @@ public class DocumentManagementController {
      * View document in browser (opens inline, not download)
      */
     @GetMapping("/{id}/view")
-    public ResponseEntity<byte[]> viewDocument(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> viewDocument(@PathVariable Long id,
+                                                              @RequestHeader HttpHeaders requestHeaders) {
         try {
             log.info("📄 Viewing document ID: {}", id);
             AuditDocument document = documentService.getDocumentById(id);
-            byte[] fileContent = documentService.downloadDocument(id);
+            MediaType contentType = document.getFileType() != null
+                    ? MediaType.parseMediaType(document.getFileType())
+                    : MediaType.APPLICATION_PDF;
+            ContentDisposition disposition = ContentDisposition.inline()
+                    .filename(document.getFileName(), StandardCharsets.UTF_8)
+                    .build();
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .body(fileContent);
+            if (redirectsDownloads()) {
+                return redirectToStorage(document, disposition, contentType);
+            }
+            return streamDocument(document, disposition, contentType, requestHeaders);
         } catch (Exception e) {
             log.error("Error viewing document: {}", e.getMessage());
             return ResponseEntity.notFound().build();
@@ -162,36 +296,174 @@ public class DocumentManagementController {
      * Download document from S3 (forces download)
      */
     @GetMapping("/{id}/download")
-    public ResponseEntity<byte[]> downloadDocument(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> downloadDocument(@PathVariable Long id,
+                                                                  @RequestHeader HttpHeaders requestHeaders) {
         try {
             log.info("⬇️ Downloading document ID: {}", id);
             AuditDocument document = documentService.getDocumentById(id);
-            byte[] fileContent = documentService.downloadDocument(id);
+            ContentDisposition disposition = ContentDisposition.attachment()
+                    .filename(document.getFileName(), StandardCharsets.UTF_8)
+                    .build();
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, 
-                            "attachment; filename=\"" + document.getFileName() + "\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(fileContent);
+            if (redirectsDownloads()) {
+                return redirectToStorage(document, disposition, MediaType.APPLICATION_OCTET_STREAM);
+            }
+            return streamDocument(document, disposition, MediaType.APPLICATION_OCTET_STREAM, requestHeaders);
         } catch (Exception e) {
             log.error("Error downloading document: {}", e.getMessage());
             return ResponseEntity.notFound().build();
         }
     }
 
+    private boolean redirectsDownloads() {
+        return "redirect".equalsIgnoreCase(downloadMode) && storageService.supportsPresignedUrls();
+    }
+
+    /**
+     * 302 to a short-lived presigned S3 URL: the client fetches the bytes (including Range
+     * requests) from S3 directly and this request costs one database lookup
+     */
+    private ResponseEntity<StreamingResponseBody> redirectToStorage(AuditDocument document,
+                                                                    ContentDisposition disposition,
+                                                                    MediaType contentType) {
+        String url = storageService.getFileUrl(document.getS3Key(), disposition.toString(), contentType.toString());
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(url))
+                .cacheControl(CacheControl.noStore())
+                .build();
+    }
+
+    /**
+     * Stream the stored object straight from the blob store to the response, honouring If-None-Match
+     * (ETag is the content hash) and a single-part Range request so viewers can seek.
+     * Multi-range requests are answered with the full body, as RFC 9110 allows.
+     * Objects held by the node-local disk cache are served from it instead of storage.
+     */
+    private ResponseEntity<StreamingResponseBody> streamDocument(AuditDocument document,
+                                                                 ContentDisposition disposition,
+                                                                 MediaType contentType,
+                                                                 HttpHeaders requestHeaders) throws IOException {
+        String eTag = document.getContentHash() != null ? "\"" + document.getContentHash() + "\"" : null;
+        if (eTag != null && eTagMatches(eTag, requestHeaders.getIfNoneMatch())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDisposition(disposition);
+        headers.setContentType(contentType);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        if (eTag != null) {
+            headers.setETag(eTag);
+        }
+
+        Optional<FileChannel> cached = documentService.cachedCopy(document);
+        Long size = document.getFileSize();
+        HttpRange range = requestedRange(requestHeaders, eTag);
+        if (range != null && size != null) {
+            if (size == 0 || !isSatisfiable(range, size)) {
+                if (cached.isPresent()) {
+                    cached.get().close();
+                }
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+            long start = range.getRangeStart(size);
+            long end = range.getRangeEnd(size);
+
+            StreamingResponseBody body = cached.isPresent()
+                    ? serveCached(cached.get(), start, end - start + 1)
+                    : transfer(documentService.openDocumentStream(document, start, end));
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            headers.setContentLength(end - start + 1);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).body(body);
+        }
+
+        StreamingResponseBody body;
+        if (cached.isPresent()) {
+            long length = cached.get().size();
+            headers.setContentLength(length);
+            body = serveCached(cached.get(), 0, length);
+        } else {
+            body = transfer(documentService.openDocumentStream(document, null, null));
+            if (size != null) {
+                headers.setContentLength(size);
+            }
+        }
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    private StreamingResponseBody serveCached(FileChannel cached, long start, long length) {
+        return out -> documentService.serveCachedCopy(cached, start, length, out);
+    }
+
+    private static StreamingResponseBody transfer(InputStream object) {
+        return out -> {
+            try (InputStream in = object) {
+                in.transferTo(out);
+            }
+        };
+    }
+
+    /**
+     * The single range to serve, or null for the full body (no/invalid/multi-part Range, or a stale If-Range)
+     */
+    private static HttpRange requestedRange(HttpHeaders requestHeaders, String eTag) {
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (ranges.size() != 1) {
+            return null;
+        }
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(eTag)) {
+            return null;
+        }
+        return ranges.get(0);
+    }
+
+    private static boolean isSatisfiable(HttpRange range, long size) {
+        try {
+            return range.getRangeStart(size) < size;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean eTagMatches(String eTag, List<String> ifNoneMatch) {
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || eTag.equals(candidate.startsWith("W/") ? candidate.substring(2) : candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Delete document
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDocument(@PathVariable Long id) {
-        try {
-            log.info("🗑️ Deleting document ID: {}", id);
-            documentService.deleteDocument(id);
-            log.info("✅ Document deleted successfully");
-            return ResponseEntity.noContent().build();
-        } catch (Exception e) {
-            log.error("❌ Error deleting document: {}", e.getMessage());
+        log.info("🗑️ Deleting document ID: {}", id);
+        BulkDeleteResult result = deletionService.deleteDocuments(List.of(id));
+        if (result.getDeleted() == 0) {
             return ResponseEntity.notFound().build();
         }
+        log.info("✅ Document deleted successfully");
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Delete many documents at once. Rows go in one transaction; stored objects that are no
+     * longer referenced are removed in batches, and any that fail are listed in failedKeys.
+     */
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<BulkDeleteResult> deleteDocuments(@RequestBody BulkDeleteRequest request) {
+        log.info("🗑️ Bulk deleting {} document(s)", request.getIds() != null ? request.getIds().size() : 0);
+        return ResponseEntity.ok(deletionService.deleteDocuments(request.getIds()));
     }
 }
\ No newline at end of file
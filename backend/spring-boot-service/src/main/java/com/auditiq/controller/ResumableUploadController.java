@@ -0,0 +1,139 @@
+package com.auditiq.controller;
+
+import com.auditiq.dto.ResumableUploadRequest;
+import com.auditiq.dto.ResumableUploadResponse;
+import com.auditiq.model.UploadSession;
+import com.auditiq.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Resumable chunked uploads for large files over unreliable links, following tus:
+ * POST opens a session, HEAD reports the offset to resume from, PATCH appends a chunk
+ * (Upload-Offset + Upload-Checksum headers, application/offset+octet-stream body),
+ * DELETE abandons the session.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/documents/uploads")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", exposedHeaders = {"Location", "Upload-Offset", "Upload-Length"})
+public class ResumableUploadController {
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+    private static final String UPLOAD_CHECKSUM = "Upload-Checksum";
+    private static final String OFFSET_OCTET_STREAM = "application/offset+octet-stream";
+
+    // tus status for a chunk whose checksum does not match its bytes
+    private static final int CHECKSUM_MISMATCH = 460;
+
+    private final ResumableUploadService uploadService;
+
+    @PostMapping
+    public ResponseEntity<ResumableUploadResponse> createUpload(@RequestBody ResumableUploadRequest request) {
+        try {
+            UploadSession session = uploadService.createSession(request.getFileName(), request.getContentType(),
+                    request.getFileSize() != null ? request.getFileSize() : -1,
+                    request.getStandard(), request.getUploadedBy());
+            return ResponseEntity.created(URI.create("/api/documents/uploads/" + session.getId()))
+                    .header(UPLOAD_OFFSET, "0")
+                    .header(UPLOAD_LENGTH, String.valueOf(session.getUploadLength()))
+                    .body(toResponse(session));
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid resumable upload request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (UnsupportedOperationException e) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+    }
+
+    /**
+     * The offset to resume from
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> getOffset(@PathVariable String id) {
+        UploadSession session = uploadService.getSession(id);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .header(UPLOAD_OFFSET, String.valueOf(session.getUploadOffset()))
+                .header(UPLOAD_LENGTH, String.valueOf(session.getUploadLength()))
+                .build();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ResumableUploadResponse> getUpload(@PathVariable String id) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(toResponse(uploadService.getSession(id)));
+    }
+
+    /**
+     * Append the request body at Upload-Offset. The body is streamed to storage as it arrives.
+     * 409 when the offset is stale (HEAD for the current one), 460 on a checksum mismatch.
+     */
+    @PatchMapping(value = "/{id}", consumes = OFFSET_OCTET_STREAM)
+    public ResponseEntity<ResumableUploadResponse> appendChunk(@PathVariable String id,
+                                                               @RequestHeader(UPLOAD_OFFSET) long offset,
+                                                               @RequestHeader(value = UPLOAD_CHECKSUM, required = false)
+                                                               String checksum,
+                                                               HttpServletRequest request) throws IOException {
+        long length = request.getContentLengthLong();
+        if (length < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).build();
+        }
+
+        try {
+            UploadSession session = uploadService.appendChunk(id, offset, request.getInputStream(), length, checksum);
+            return ResponseEntity.ok()
+                    .header(UPLOAD_OFFSET, String.valueOf(session.getUploadOffset()))
+                    .body(toResponse(session));
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected chunk for upload {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (ResumableUploadService.OffsetConflictException e) {
+            log.info("Offset conflict on upload {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (ResumableUploadService.ChecksumMismatchException e) {
+            log.warn("Checksum mismatch on upload {}: {}", id, e.getMessage());
+            return ResponseEntity.status(CHECKSUM_MISMATCH).build();
+        } catch (RejectedExecutionException e) {
+            // All bytes are stored; a zero-length PATCH at the final offset retries the registration
+            log.warn("Ingestion pipeline at capacity, upload {} stays stored", id);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String id) {
+        try {
+            uploadService.abortSession(id);
+            return ResponseEntity.noContent().build();
+        } catch (ResumableUploadService.OffsetConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    private static ResumableUploadResponse toResponse(UploadSession session) {
+        return ResumableUploadResponse.builder()
+                .id(session.getId())
+                .fileName(session.getFileName())
+                .uploadLength(session.getUploadLength())
+                .uploadOffset(session.getUploadOffset())
+                .minChunkSize(ResumableUploadService.MIN_CHUNK_SIZE)
+                .status(session.getStatus().name())
+                .documentId(session.getDocumentId())
+                .build();
+    }
+}
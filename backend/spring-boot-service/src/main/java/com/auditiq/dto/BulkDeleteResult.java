@@ -0,0 +1,23 @@
+package com.auditiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk delete. Rows are removed atomically; storage keys listed in
+ * failedKeys are left for the orphan reconciler to retry.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkDeleteResult {
+    private int deleted;
+    private List<Long> notFound;
+    private int objectsDeleted;
+    private List<String> failedKeys;
+}
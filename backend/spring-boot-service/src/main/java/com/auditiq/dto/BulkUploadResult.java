@@ -0,0 +1,25 @@
+package com.auditiq.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One NDJSON line of a bulk upload response, written as soon as that file is done
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkUploadResult {
+    private int index;
+    private String fileName;
+    private Long id;
+    private String status;
+    private Long fileSize;
+    private Long durationMs;
+    private String error;
+}
@@ -0,0 +1,34 @@
+package com.auditiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Step two of a direct-to-storage upload, sent once the browser has uploaded every byte
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DirectUploadCompleteRequest {
+    private String s3Key;
+    private String uploadId;
+    private String uploadToken;
+    private List<UploadedPart> parts;
+    private String fileName;
+    private String contentType;
+    private String standard;
+    private String uploadedBy;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UploadedPart {
+        private int partNumber;
+        private String etag;
+    }
+}
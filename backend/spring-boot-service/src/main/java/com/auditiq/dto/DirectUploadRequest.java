@@ -0,0 +1,19 @@
+package com.auditiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Step one of a direct-to-storage upload: describe the file that the browser is about to send
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DirectUploadRequest {
+    private String fileName;
+    private String contentType;
+    private Long fileSize;
+}
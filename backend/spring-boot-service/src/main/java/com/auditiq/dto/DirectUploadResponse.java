@@ -0,0 +1,38 @@
+package com.auditiq.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Where the browser should PUT the file: a single presigned URL, or (multipart) one
+ * presigned URL per part of partSize bytes. The ETag of every part and the uploadToken
+ * must be sent back with the completion call.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DirectUploadResponse {
+    private String s3Key;
+    private String url;
+    private String uploadId;
+    private Long partSize;
+    private List<PresignedPart> parts;
+    private String uploadToken;
+    private Instant expiresAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PresignedPart {
+        private int partNumber;
+        private String url;
+    }
+}
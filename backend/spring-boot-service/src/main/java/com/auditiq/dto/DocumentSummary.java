@@ -0,0 +1,21 @@
+package com.auditiq.dto;
+
+import com.auditiq.model.AuditDocument;
+
+import java.time.LocalDateTime;
+
+/**
+ * Closed projection of AuditDocument used by the list endpoints - selects metadata columns only
+ */
+public interface DocumentSummary {
+    Long getId();
+    String getFileName();
+    String getFileType();
+    Long getFileSize();
+    String getS3Url();
+    AuditDocument.ComplianceStandard getStandard();
+    AuditDocument.ProcessingStatus getStatus();
+    String getUploadedBy();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,21 @@
+package com.auditiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Opens a resumable upload session for a file of known size
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResumableUploadRequest {
+    private String fileName;
+    private String contentType;
+    private Long fileSize;
+    private String standard;
+    private String uploadedBy;
+}
@@ -0,0 +1,25 @@
+package com.auditiq.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of a resumable upload session; documentId is set once the upload is complete
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResumableUploadResponse {
+    private String id;
+    private String fileName;
+    private long uploadLength;
+    private long uploadOffset;
+    private long minChunkSize;
+    private String status;
+    private Long documentId;
+}
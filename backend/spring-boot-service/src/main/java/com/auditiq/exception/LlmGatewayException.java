@@ -0,0 +1,21 @@
+package com.auditiq.exception;
+
+public class LlmGatewayException extends RuntimeException {
+
+    // HTTP status of the last attempt, or 0 when no response was received
+    private final int status;
+
+    public LlmGatewayException(String message, int status) {
+        super(message);
+        this.status = status;
+    }
+
+    public LlmGatewayException(String message, Throwable cause) {
+        super(message, cause);
+        this.status = 0;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -8,7 +8,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "audit_documents")
+@Table(name = "audit_documents", indexes = {
+        @Index(name = "idx_audit_documents_content_hash", columnList = "content_hash"),
+        @Index(name = "idx_audit_documents_s3key", columnList = "s3key")
+})
 @Data  // ← THIS GENERATES ALL GETTERS/SETTERS!
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,8 +36,9 @@ public class AuditDocument {
     @Column(name = "s3url", nullable = false)
     private String s3Url;
 
-    @Column(columnDefinition = "TEXT")
-    private String extractedText;
+    // SHA-256 of the uploaded bytes; documents with the same hash share one S3 object
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
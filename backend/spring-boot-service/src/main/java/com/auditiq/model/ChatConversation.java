@@ -35,6 +35,14 @@ public class ChatConversation {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Rolling summary of the messages that no longer fit the history window
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+    
+    // Last message folded into the summary; later messages are sent verbatim
+    @Column(name = "summarized_through_message_id")
+    private Long summarizedThroughMessageId;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -35,8 +35,8 @@ public class ComplianceDocument {
     @Column(nullable = false)
     private String s3Bucket;
 
-    @Lob
-    @Column(columnDefinition = "LONGTEXT")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "LONGBLOB")
     private String textContent;
 
     private String complianceFramework;
@@ -0,0 +1,141 @@
+package com.auditiq.model;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Transparent compression for large text columns.
+ * Text is deflated with a preset dictionary of compliance boilerplate so that even short
+ * documents compress well. Stored values carry a small header (magic + dictionary version);
+ * values written before the column was compressed have no header and are read as plain UTF-8.
+ *
+ * Decoding inflates straight into a character stream, so no intermediate byte[] of the
+ * full decompressed text is materialised.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    // A leading NUL never occurs in legacy UTF-8 text rows, so the header cannot be mistaken for content
+    private static final byte MAGIC_0 = 0;
+    private static final byte MAGIC_1 = 'Q';
+    private static final int HEADER_LENGTH = 3;
+
+    // Bump together with a new dictionary file; old versions must stay loadable for existing rows
+    private static final byte DICTIONARY_VERSION = 1;
+    private static final byte[] DICTIONARY = loadDictionary(DICTIONARY_VERSION);
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final DistributionSummary COMPRESSION_RATIO = DistributionSummary
+            .builder("auditiq.text.compression.ratio")
+            .description("Uncompressed UTF-8 size divided by stored size")
+            .register(Metrics.globalRegistry);
+    private static final Timer ENCODE_TIMER = Timer.builder("auditiq.text.compression.encode")
+            .description("Time spent compressing text columns")
+            .register(Metrics.globalRegistry);
+    private static final Timer DECODE_TIMER = Timer.builder("auditiq.text.compression.decode")
+            .description("Time spent decompressing text columns")
+            .register(Metrics.globalRegistry);
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        if (text == null) {
+            return null;
+        }
+        return ENCODE_TIMER.record(() -> encode(text));
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] stored) {
+        if (stored == null) {
+            return null;
+        }
+        if (!hasHeader(stored)) {
+            // Row written before compression was enabled
+            return new String(stored, StandardCharsets.UTF_8);
+        }
+        return DECODE_TIMER.record(() -> decode(stored));
+    }
+
+    private static byte[] encode(String text) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setDictionary(DICTIONARY);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, text.length() / 4));
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(DICTIONARY_VERSION);
+
+        try (Writer writer = new OutputStreamWriter(
+                new DeflaterOutputStream(out, deflater, BUFFER_SIZE), StandardCharsets.UTF_8)) {
+            writer.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            long uncompressed = deflater.getBytesRead();
+            deflater.end();
+            if (out.size() > 0) {
+                COMPRESSION_RATIO.record((double) uncompressed / out.size());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static String decode(byte[] stored) {
+        byte version = stored[2];
+        if (version != DICTIONARY_VERSION) {
+            throw new IllegalStateException("Unknown compression dictionary version " + version);
+        }
+
+        // Raw deflate: the dictionary is set up front rather than on needsDictionary()
+        Inflater inflater = new Inflater(true);
+        inflater.setDictionary(DICTIONARY);
+        InputStream compressed = new ByteArrayInputStream(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH);
+
+        StringWriter text = new StringWriter(stored.length * 4);
+        try (Reader reader = new InputStreamReader(
+                new InflaterInputStream(compressed, inflater, BUFFER_SIZE), StandardCharsets.UTF_8)) {
+            reader.transferTo(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt compressed text column", e);
+        } finally {
+            inflater.end();
+        }
+        return text.toString();
+    }
+
+    private static boolean hasHeader(byte[] stored) {
+        return stored.length >= HEADER_LENGTH && stored[0] == MAGIC_0 && stored[1] == MAGIC_1;
+    }
+
+    private static byte[] loadDictionary(int version) {
+        String resource = "/compression/compliance-dictionary-v" + version + ".txt";
+        try (InputStream in = CompressedTextConverter.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing compression dictionary " + resource);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.auditiq.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A resumable upload in progress. Each accepted chunk is one part of the S3 multipart
+ * upload behind the session; uploadOffset is the number of bytes stored so far.
+ */
+@Entity
+@Table(name = "upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_status_updated", columnList = "status, updatedAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "s3key", nullable = false)
+    private String s3Key;
+
+    @Column(nullable = false)
+    private String multipartUploadId;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    private String contentType;
+
+    @Column(nullable = false)
+    private Long uploadLength;
+
+    @Column(nullable = false)
+    private Long uploadOffset = 0L;
+
+    @Column(nullable = false)
+    private String standard;
+
+    @Column(nullable = false)
+    private String uploadedBy = "system";
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.ACTIVE;
+
+    // Set once the assembled object is registered as a document
+    private Long documentId;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "upload_session_parts", joinColumns = @JoinColumn(name = "session_id"))
+    @OrderBy("partNumber")
+    private List<Part> parts = new ArrayList<>();
+
+    // Held while one PATCH streams a chunk, so a concurrent PATCH cannot reuse its part number
+    private LocalDateTime leaseExpiresAt;
+
+    @Version
+    private Long version;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public enum Status {
+        ACTIVE,     // accepting chunks
+        STORED,     // all bytes assembled in storage, document not registered yet
+        COMPLETED   // registered as documentId, extraction scheduled
+    }
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Part {
+        private int partNumber;
+        private String etag;
+        // Base64 SHA-256 of the chunk as sent by the client and verified by S3
+        private String checksumSha256;
+        private long size;
+    }
+}
@@ -1,10 +1,17 @@
 package com.auditiq.repository;
 
+import com.auditiq.dto.DocumentSummary;
 import com.auditiq.model.AuditDocument;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AuditDocumentRepository extends JpaRepository<AuditDocument, Long> {
@@ -12,4 +19,25 @@ public interface AuditDocumentRepository extends JpaRepository<AuditDocument, Lo
     List<AuditDocument> findByStandard(AuditDocument.ComplianceStandard standard);
     List<AuditDocument> findByStatus(AuditDocument.ProcessingStatus status);
     List<AuditDocument> findByUploadedBy(String uploadedBy);
+    Optional<AuditDocument> findFirstByContentHashAndStatusOrderByIdAsc(String contentHash, AuditDocument.ProcessingStatus status);
+    long countByS3Key(String s3Key);
+
+    // Row locks that order duplicate registration against deletion of the original
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM AuditDocument d WHERE d.id = :id")
+    Optional<AuditDocument> findByIdForUpdate(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM AuditDocument d WHERE d.id IN :ids")
+    List<AuditDocument> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Which of the given storage keys are still referenced by at least one document
+    @Query("SELECT DISTINCT d.s3Key FROM AuditDocument d WHERE d.s3Key IN :keys")
+    List<String> findReferencedS3Keys(@Param("keys") Collection<String> keys);
+
+    // Metadata-only projections for the list endpoints
+    List<DocumentSummary> findSummariesBy();
+    List<DocumentSummary> findTop10SummariesByOrderByCreatedAtDesc();
+    List<DocumentSummary> findSummariesByStandard(AuditDocument.ComplianceStandard standard);
+    List<DocumentSummary> findSummariesByStatus(AuditDocument.ProcessingStatus status);
 }
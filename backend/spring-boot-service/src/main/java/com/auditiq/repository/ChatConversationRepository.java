@@ -2,7 +2,11 @@ package com.auditiq.repository;
 
 import com.auditiq.model.ChatConversation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -10,4 +14,11 @@ import java.util.List;
 public interface ChatConversationRepository extends JpaRepository<ChatConversation, Long> {
     
     List<ChatConversation> findAllByOrderByUpdatedAtDesc();
+
+    // Store a refreshed summary unless a refresh covering more messages got there first
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChatConversation c SET c.summary = :summary, c.summarizedThroughMessageId = :throughId " +
+            "WHERE c.id = :id AND (c.summarizedThroughMessageId IS NULL OR c.summarizedThroughMessageId < :throughId)")
+    int updateSummary(@Param("id") Long id, @Param("summary") String summary, @Param("throughId") Long throughId);
 }
\ No newline at end of file
@@ -12,6 +12,8 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     
     List<ChatMessage> findByConversationOrderByCreatedAtAsc(ChatConversation conversation);
     
+    List<ChatMessage> findByConversationAndIdGreaterThanOrderByIdAsc(ChatConversation conversation, Long afterId);
+    
     void deleteByConversation(ChatConversation conversation);
     
     Long countByConversation(ChatConversation conversation);
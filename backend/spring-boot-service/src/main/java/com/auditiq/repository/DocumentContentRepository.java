@@ -0,0 +1,26 @@
+package com.auditiq.repository;
+
+import com.auditiq.model.DocumentContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface DocumentContentRepository extends JpaRepository<DocumentContent, Long> {
+
+    @Query("SELECT c.extractedText FROM DocumentContent c WHERE c.documentId = :documentId")
+    Optional<String> findTextByDocumentId(@Param("documentId") Long documentId);
+
+    // Copies the stored text inside the database, without loading it into the JVM
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO document_contents (document_id, extracted_text, updated_at) " +
+            "SELECT :targetId, extracted_text, NOW() FROM document_contents WHERE document_id = :sourceId",
+            nativeQuery = true)
+    int copyContent(@Param("sourceId") Long sourceId, @Param("targetId") Long targetId);
+}
@@ -0,0 +1,40 @@
+package com.auditiq.repository;
+
+import com.auditiq.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    List<UploadSession> findTop100ByStatusInAndUpdatedAtBefore(List<UploadSession.Status> statuses, LocalDateTime cutoff);
+
+    boolean existsByMultipartUploadId(String multipartUploadId);
+
+    // Which of the given storage keys belong to sessions that have not registered their document yet
+    @Query("SELECT s.s3Key FROM UploadSession s WHERE s.s3Key IN :keys AND s.status <> :completed")
+    List<String> findPendingS3Keys(@Param("keys") Collection<String> keys,
+                                   @Param("completed") UploadSession.Status completed);
+
+    // Take the chunk lease if the session is still at the offset and nobody else holds it
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.leaseExpiresAt = :until " +
+            "WHERE s.id = :id AND s.uploadOffset = :offset " +
+            "AND (s.leaseExpiresAt IS NULL OR s.leaseExpiresAt < :now)")
+    int claimLease(@Param("id") String id, @Param("offset") long offset,
+                   @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.leaseExpiresAt = NULL WHERE s.id = :id")
+    void releaseLease(@Param("id") String id);
+}
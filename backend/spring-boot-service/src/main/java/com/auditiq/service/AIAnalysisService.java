@@ -31,6 +31,7 @@ public class AIAnalysisService {
 
     private final RestTemplate restTemplate;
     private final DocumentManagementService documentManagementService;
+    private final SingleFlight singleFlight;
 
     @Value("${ml.service.base-url:http://localhost:5001}")
     private String mlServiceUrl;
@@ -59,9 +60,14 @@ public class AIAnalysisService {
     }
 
     /**
-     * Analyze a stored document by ID
+     * Analyze a stored document by ID. Concurrent requests for the same document share one analysis.
      */
     public AnalysisResultDTO analyzeStoredDocument(Long documentId) {
+        return singleFlight.execute("analyze-stored", "document:" + documentId, AnalysisResultDTO.class,
+                () -> runStoredAnalysis(documentId));
+    }
+
+    private AnalysisResultDTO runStoredAnalysis(Long documentId) {
         try {
             log.info("Analyzing stored document ID: {}", documentId);
 
@@ -72,7 +78,7 @@ public class AIAnalysisService {
             documentManagementService.updateDocumentStatus(documentId, AuditDocument.ProcessingStatus.PROCESSING);
 
             // Analyze the extracted text
-            String text = document.getExtractedText();
+            String text = documentManagementService.getExtractedText(documentId);
             if (text == null || text.isEmpty()) {
                 // Download from S3 if text not extracted
                 byte[] fileContent = documentManagementService.downloadDocument(documentId);
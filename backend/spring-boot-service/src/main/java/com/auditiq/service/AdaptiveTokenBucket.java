@@ -0,0 +1,97 @@
+package com.auditiq.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket whose capacity and level follow the server's rate-limit headers.
+ * It starts from a configured per-minute budget; every response can resize it (limit),
+ * pull the level down to what the server says is left (remaining) and, when nothing is
+ * left, hold all callers until the server's reset time. A 429 pauses it for retry-after.
+ */
+class AdaptiveTokenBucket {
+
+    private static final long NANOS_PER_MINUTE = Duration.ofMinutes(1).toNanos();
+
+    private double capacity;
+    private double tokens;
+    private double refillPerNano;
+    private long lastRefill;
+    private long pausedUntil;
+
+    AdaptiveTokenBucket(long perMinute) {
+        this.capacity = perMinute;
+        this.tokens = perMinute;
+        this.refillPerNano = (double) perMinute / NANOS_PER_MINUTE;
+        this.lastRefill = System.nanoTime();
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * Block until the amount can be taken; amounts above capacity wait for a full bucket
+     */
+    void acquire(double amount) throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                refill(now);
+                double wanted = Math.min(amount, capacity);
+                if (now - pausedUntil >= 0 && tokens >= wanted) {
+                    tokens -= wanted;
+                    return;
+                }
+                waitNanos = now - pausedUntil < 0
+                        ? pausedUntil - now
+                        : (long) Math.ceil((wanted - tokens) / refillPerNano);
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, 1_000_000));
+        }
+    }
+
+    /**
+     * Align with the server's view; any argument may be null when the header was absent
+     */
+    synchronized void update(Long limit, Long remaining, Instant reset) {
+        long now = System.nanoTime();
+        refill(now);
+        if (limit != null && limit > 0 && limit != capacity) {
+            capacity = limit;
+            refillPerNano = (double) limit / NANOS_PER_MINUTE;
+            tokens = Math.min(tokens, capacity);
+        }
+        if (remaining != null) {
+            tokens = Math.min(tokens, remaining);
+            if (remaining <= 0 && reset != null) {
+                pauseFor(Duration.between(Instant.now(), reset));
+            }
+        }
+    }
+
+    /**
+     * Stop handing out tokens for the duration (e.g. the server's retry-after)
+     */
+    synchronized void pauseFor(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            return;
+        }
+        long until = System.nanoTime() + duration.toNanos();
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+    }
+
+    synchronized double available() {
+        refill(System.nanoTime());
+        return tokens;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+            lastRefill = now;
+        }
+    }
+}
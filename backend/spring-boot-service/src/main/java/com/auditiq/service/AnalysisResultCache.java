@@ -0,0 +1,262 @@
+package com.auditiq.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed cache for document analysis responses. The key is a SHA-256 of the
+ * normalized document text, framework, model and audit prompt version, so the same text
+ * analysed again (re-uploads, pasted copies, repeated clicks) skips the Claude call, and a
+ * new model or prompt never reads an old answer. A size-bounded in-process Caffeine cache (L1)
+ * sits in front of Redis (L2), which is shared by all instances. Redis failures only cost
+ * the cache, never the analysis.
+ */
+@Slf4j
+@Service
+public class AnalysisResultCache {
+
+    private static final String KEY_PREFIX = "auditiq:analysis:";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int DELETE_BATCH = 500;
+
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String model;
+
+    @Value("${analysis.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analysis.cache.l1.max-size-mb:64}")
+    private long l1MaxSizeMb;
+
+    @Value("${analysis.cache.l1.ttl-minutes:30}")
+    private long l1TtlMinutes;
+
+    @Value("${analysis.cache.l2.enabled:true}")
+    private boolean l2Enabled;
+
+    @Value("${analysis.cache.l2.ttl-hours:24}")
+    private long l2TtlHours;
+
+    private Cache<String, Entry> local;
+
+    private Counter l1Hits;
+    private Counter l2Hits;
+    private Counter misses;
+    private Counter timeSaved;
+    private Counter l2Errors;
+
+    public AnalysisResultCache(RedisConnectionFactory connectionFactory,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               ClaudeService claudeService) {
+        this.redis = new StringRedisTemplate(connectionFactory);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.model = claudeService.getModel();
+    }
+
+    @PostConstruct
+    void init() {
+        local = Caffeine.newBuilder()
+                .maximumWeight(l1MaxSizeMb * 1024 * 1024)
+                // Java strings hold up to two bytes per char
+                .weigher((String key, Entry entry) -> key.length() + entry.response().length() * 2)
+                .expireAfterWrite(Duration.ofMinutes(l1TtlMinutes))
+                .build();
+
+        l1Hits = requests("l1_hit");
+        l2Hits = requests("l2_hit");
+        misses = requests("miss");
+        timeSaved = Counter.builder("auditiq.analysis.cache.time.saved")
+                .description("Analysis time avoided by cache hits")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        l2Errors = Counter.builder("auditiq.analysis.cache.l2.errors")
+                .description("Redis reads and writes of the analysis cache that failed")
+                .register(meterRegistry);
+        Gauge.builder("auditiq.analysis.cache.hit.ratio", this, AnalysisResultCache::hitRatio)
+                .description("Share of analysis cache lookups served from L1 or L2")
+                .register(meterRegistry);
+        Gauge.builder("auditiq.analysis.cache.l1.entries", local, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached analysis of this text, or the loader's answer, which is cached when
+     * {@code cacheable} accepts it (so malformed responses are retried next time)
+     */
+    public String getOrCompute(String documentText, String framework, Supplier<String> loader,
+                               Predicate<String> cacheable) {
+        if (!enabled) {
+            return loader.get();
+        }
+        long started = System.nanoTime();
+        String key = key(documentText, framework);
+
+        Entry entry = local.getIfPresent(key);
+        if (entry != null) {
+            l1Hits.increment();
+            recordSaved(entry, started);
+            log.info("Analysis cache L1 hit for {} ({} chars)", framework, documentText.length());
+            return entry.response();
+        }
+
+        entry = readL2(key);
+        if (entry != null) {
+            l2Hits.increment();
+            local.put(key, entry);
+            recordSaved(entry, started);
+            log.info("Analysis cache L2 hit for {} ({} chars)", framework, documentText.length());
+            return entry.response();
+        }
+
+        misses.increment();
+        long computeStarted = System.nanoTime();
+        String response = loader.get();
+        if (cacheable.test(response)) {
+            entry = new Entry(response, System.nanoTime() - computeStarted);
+            local.put(key, entry);
+            writeL2(key, entry);
+        }
+        return response;
+    }
+
+    /**
+     * Drop every cached analysis from L1 and, with SCAN + UNLINK in batches, from Redis.
+     * Needed only when results must go before their TTL; prompt and model changes already
+     * move to new keys. Other instances keep their L1 entries until those expire.
+     */
+    public long invalidateAll() {
+        local.invalidateAll();
+        if (!l2Enabled) {
+            return 0;
+        }
+        long removed = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(DELETE_BATCH).build();
+        try (Cursor<String> cursor = redis.scan(options)) {
+            List<String> batch = new ArrayList<>(DELETE_BATCH);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == DELETE_BATCH) {
+                    removed += unlink(batch);
+                }
+            }
+            removed += unlink(batch);
+        }
+        log.info("Analysis cache invalidated: {} Redis entries removed", removed);
+        return removed;
+    }
+
+    private long unlink(List<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Long removed = redis.unlink(keys);
+        keys.clear();
+        return removed != null ? removed : 0;
+    }
+
+    private Entry readL2(String key) {
+        if (!l2Enabled) {
+            return null;
+        }
+        try {
+            String json = redis.opsForValue().get(key);
+            return json != null ? objectMapper.readValue(json, Entry.class) : null;
+        } catch (JsonProcessingException | RuntimeException e) {
+            l2Errors.increment();
+            log.warn("Analysis cache read failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeL2(String key, Entry entry) {
+        if (!l2Enabled) {
+            return;
+        }
+        try {
+            redis.opsForValue().set(key, objectMapper.writeValueAsString(entry), Duration.ofHours(l2TtlHours));
+        } catch (JsonProcessingException | RuntimeException e) {
+            l2Errors.increment();
+            log.warn("Analysis cache write failed: {}", e.getMessage());
+        }
+    }
+
+    private void recordSaved(Entry entry, long lookupStarted) {
+        long saved = entry.computeNanos() - (System.nanoTime() - lookupStarted);
+        if (saved > 0) {
+            timeSaved.increment(saved / 1_000_000_000.0);
+        }
+    }
+
+    /**
+     * Digest of the inputs that decide the answer. Whitespace runs collapse to one space and
+     * the text is NFC-normalized, so copies that differ only in layout share an entry.
+     */
+    String key(String documentText, String framework) {
+        String text = WHITESPACE.matcher(Normalizer.normalize(documentText, Normalizer.Form.NFC))
+                .replaceAll(" ")
+                .strip();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] {
+                    text,
+                    framework != null ? framework.strip().toUpperCase(Locale.ROOT) : "",
+                    model,
+                    ClaudeService.AUDIT_PROMPT_VERSION}) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return KEY_PREFIX + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private Counter requests(String result) {
+        return Counter.builder("auditiq.analysis.cache.requests")
+                .description("Analysis cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private double hitRatio() {
+        double hits = l1Hits.count() + l2Hits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    /**
+     * A cached response and how long it originally took to produce
+     */
+    record Entry(String response, long computeNanos) {
+    }
+}
@@ -8,7 +8,6 @@ import com.auditiq.repository.ComplianceDocumentRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -24,11 +23,25 @@ public class AuditFindingsService {
     @Autowired
     private ClaudeService claudeService;
 
+    @Autowired
+    private AnalysisResultCache analysisCache;
+
+    @Autowired
+    private ChunkedAnalysisService chunkedAnalysis;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
     /**
-     * Generate audit findings for a document using Claude AI
+     * Generate audit findings for a document using Claude AI. Concurrent requests for the same
+     * document and framework share one analysis; no transaction is held while they wait.
      */
-    @Transactional
     public AuditFindingDTO generateFindings(Long documentId, String framework) {
+        return singleFlight.execute("findings", "document:" + documentId + ":" + framework, AuditFindingDTO.class,
+            () -> runFindings(documentId, framework));
+    }
+
+    private AuditFindingDTO runFindings(Long documentId, String framework) {
         log.info("Generating audit findings for document ID: {} with framework: {}", documentId, framework);
 
         // 1. Fetch document
@@ -43,7 +56,7 @@ public class AuditFindingsService {
 
         // 3. Call Claude API for analysis
         log.info("Calling Claude API to analyze {} characters of text", documentText.length());
-        String claudeResponse = claudeService.analyzeDocument(documentText, framework);
+        String claudeResponse = analyzeWithCache(documentText, framework);
 
         // 4. Parse Claude's JSON response into structured findings
         List<Map<String, Object>> parsedFindings = claudeService.parseAuditFindings(claudeResponse);
@@ -262,6 +275,19 @@ public class AuditFindingsService {
         return claudeService.generateRemediationGuidance(findingDescription, documentContext);
     }
 
+    /**
+     * Claude's analysis of the text, served from the analysis cache when the same text was
+     * analysed for the framework before. Only responses with a findings array are cached.
+     * Documents over the chunking threshold are analysed in parallel chunks and merged.
+     */
+    private String analyzeWithCache(String documentText, String framework) {
+        return analysisCache.getOrCompute(documentText, framework,
+            () -> chunkedAnalysis.shouldChunk(documentText)
+                ? chunkedAnalysis.analyze(documentText, framework)
+                : claudeService.analyzeDocument(documentText, framework),
+            claudeService::hasFindingsArray);
+    }
+
     /**
      * Get remediation guidance (overloaded for controller compatibility)
      */
@@ -273,10 +299,16 @@ public class AuditFindingsService {
      * Generate findings from text (for paste text mode in controller)
      */
     public AuditFindingDTO generateFindingsFromText(String documentText, String framework, String fileName) {
+        String key = SingleFlight.digest(documentText) + ":" + framework + ":" + fileName;
+        return singleFlight.execute("findings-text", key, AuditFindingDTO.class,
+            () -> runFindingsFromText(documentText, framework, fileName));
+    }
+
+    private AuditFindingDTO runFindingsFromText(String documentText, String framework, String fileName) {
         log.info("Generating findings from text: {} characters, framework: {}", documentText.length(), framework);
 
         // Call Claude API for analysis
-        String claudeResponse = claudeService.analyzeDocument(documentText, framework);
+        String claudeResponse = analyzeWithCache(documentText, framework);
 
         // Parse Claude's JSON response
         List<Map<String, Object>> parsedFindings = claudeService.parseAuditFindings(claudeResponse);
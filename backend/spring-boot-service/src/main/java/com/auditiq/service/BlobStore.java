@@ -0,0 +1,130 @@
+package com.auditiq.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage for uploaded document bytes, addressed by key (the audit_documents.s3_key column).
+ * The backend is chosen with storage.backend: "s3" (default) or "local".
+ */
+public interface BlobStore {
+
+    /**
+     * Start writing a blob. Bytes become visible under the key only when the stream is
+     * closed; call {@link BlobOutputStream#abort()} instead of close() to discard them.
+     */
+    BlobOutputStream create(String key, String contentType) throws IOException;
+
+    /**
+     * Store a local file under the key
+     */
+    default void put(String key, Path file, String contentType) throws IOException {
+        BlobOutputStream out = create(key, contentType);
+        try {
+            Files.copy(file, out);
+            out.close();
+        } catch (IOException | RuntimeException e) {
+            out.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Copy a blob into a local file, replacing the file
+     */
+    default void get(String key, Path target) throws IOException {
+        try (InputStream in = open(key)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Open the inclusive byte range [start, end] of a blob
+     */
+    InputStream open(String key, long start, long end) throws IOException;
+
+    boolean exists(String key);
+
+    /**
+     * Opaque version tag of the blob's current content (the S3 ETag); changes whenever the blob is rewritten
+     */
+    String etag(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Delete many blobs. Every key is attempted; if any could not be deleted a
+     * {@link DeleteFailedException} naming them is thrown after the rest are gone.
+     */
+    default void deleteAll(Collection<String> keys) throws IOException {
+        List<String> failed = new ArrayList<>();
+        for (String key : keys) {
+            try {
+                delete(key);
+            } catch (IOException | RuntimeException e) {
+                failed.add(key);
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new DeleteFailedException(failed);
+        }
+    }
+
+    /**
+     * Walk the blobs whose keys start with the prefix, handing them to the consumer one page at
+     * a time so the full listing is never held in memory
+     */
+    void list(String prefix, Consumer<List<BlobInfo>> pageConsumer) throws IOException;
+
+    /**
+     * Where the blob lives, for display (stored as audit_documents.s3_url)
+     */
+    String locationOf(String key);
+
+    record BlobInfo(String key, long size, Instant lastModified) {
+    }
+
+    /**
+     * Some keys of a {@link #deleteAll} call are still present
+     */
+    class DeleteFailedException extends IOException {
+
+        private final List<String> failedKeys;
+
+        public DeleteFailedException(List<String> failedKeys) {
+            super("Could not delete " + failedKeys.size() + " blob(s), first: " + failedKeys.get(0));
+            this.failedKeys = List.copyOf(failedKeys);
+        }
+
+        public List<String> getFailedKeys() {
+            return failedKeys;
+        }
+    }
+
+    /**
+     * Output stream whose close() commits the blob
+     */
+    abstract class BlobOutputStream extends OutputStream {
+
+        /**
+         * Discard everything written so far. No-op once the stream has been closed.
+         */
+        public abstract void abort();
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+    }
+}
@@ -6,12 +6,19 @@ import com.auditiq.repository.ChatConversationRepository;
 import com.auditiq.repository.ChatMessageRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,60 +34,32 @@ public class ChatService {
     @Autowired
     private ChatMessageRepository messageRepository;
 
-    /**
-     * Send a message and get AI response
-     */
-    @Transactional
-    public ChatMessage sendMessage(String userMessage, Long conversationId) {
-        log.info("Processing chat message for conversation: {}", conversationId);
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
-        // Get or create conversation
-        ChatConversation conversation;
-        if (conversationId != null) {
-            conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found: " + conversationId));
-        } else {
-            // Create new conversation
-            conversation = new ChatConversation();
-            conversation.setTitle(generateConversationTitle(userMessage));
-            conversation.setCreatedAt(LocalDateTime.now());
-            conversation.setUpdatedAt(LocalDateTime.now());
-            conversation = conversationRepository.save(conversation);
-        }
+    @Autowired
+    @Qualifier("taskExecutor")
+    private Executor summaryExecutor;
 
-        // Save user message
-        ChatMessage userMsg = new ChatMessage();
-        userMsg.setConversation(conversation);
-        userMsg.setRole("user");
-        userMsg.setContent(userMessage);
-        userMsg.setCreatedAt(LocalDateTime.now());
-        messageRepository.save(userMsg);
-
-        // Get conversation history
-        List<ChatMessage> history = messageRepository.findByConversationOrderByCreatedAtAsc(conversation);
-
-        // Build message list for Claude API
-        List<ClaudeService.ChatMessage> claudeMessages = new ArrayList<>();
-        for (ChatMessage msg : history) {
-            claudeMessages.add(new ClaudeService.ChatMessage(msg.getRole(), msg.getContent()));
-        }
+    // Rough English-text ratio, as used for the LLM gateway's token metering
+    private static final int CHARS_PER_TOKEN = 4;
 
-        // Call Claude API
-        String aiResponse = claudeService.chat(claudeMessages);
+    // Recent messages sent verbatim; older ones reach Claude through the conversation summary
+    @Value("${chat.history.window-tokens:8000}")
+    private int windowTokens;
 
-        // Save AI response
-        ChatMessage aiMsg = new ChatMessage();
-        aiMsg.setConversation(conversation);
-        aiMsg.setRole("assistant");
-        aiMsg.setContent(aiResponse);
-        aiMsg.setCreatedAt(LocalDateTime.now());
-        aiMsg = messageRepository.save(aiMsg);
+    private final Set<Long> summarizing = ConcurrentHashMap.newKeySet();
 
-        // Update conversation timestamp
-        conversation.setUpdatedAt(LocalDateTime.now());
-        conversationRepository.save(conversation);
+    /**
+     * Send a message and get AI response. The user message and the answer are stored in two
+     * short transactions; no transaction (and no pooled connection) is held during the Claude call.
+     */
+    public ChatMessage sendMessage(String userMessage, Long conversationId) {
+        log.info("Processing chat message for conversation: {}", conversationId);
 
-        return aiMsg;
+        ChatTurn turn = startTurn(conversationId, generateConversationTitle(userMessage), userMessage, true);
+        String aiResponse = callModel(turn, () -> claudeService.chat(turn.messages(), turn.summary()));
+        return completeTurn(turn.conversationId(), aiResponse);
     }
 
     /**
@@ -129,157 +108,244 @@ public class ChatService {
     /**
      * Ask about a specific finding (contextual chat)
      */
-    @Transactional
     public ChatMessage askAboutFinding(String findingDescription, String documentContext, Long conversationId) {
         log.info("Asking about finding in conversation: {}", conversationId);
 
-        // Get or create conversation
-        ChatConversation conversation;
-        if (conversationId != null) {
-            conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found: " + conversationId));
-        } else {
-            conversation = new ChatConversation();
-            conversation.setTitle("Finding Analysis");
-            conversation.setCreatedAt(LocalDateTime.now());
-            conversation.setUpdatedAt(LocalDateTime.now());
-            conversation = conversationRepository.save(conversation);
-        }
-
         // Build contextual message
         String contextualMessage = String.format(
             "I need help understanding this audit finding:\n\n%s\n\nDocument context:\n%s",
             findingDescription, documentContext
         );
 
-        // Save user message
-        ChatMessage userMsg = new ChatMessage();
-        userMsg.setConversation(conversation);
-        userMsg.setRole("user");
-        userMsg.setContent(contextualMessage);
-        userMsg.setCreatedAt(LocalDateTime.now());
-        messageRepository.save(userMsg);
-
-        // Call Claude API with finding context
-        String aiResponse = claudeService.analyzeFinding(findingDescription, documentContext);
-
-        // Save AI response
-        ChatMessage aiMsg = new ChatMessage();
-        aiMsg.setConversation(conversation);
-        aiMsg.setRole("assistant");
-        aiMsg.setContent(aiResponse);
-        aiMsg.setCreatedAt(LocalDateTime.now());
-        aiMsg = messageRepository.save(aiMsg);
-
-        // Update conversation
-        conversation.setUpdatedAt(LocalDateTime.now());
-        conversationRepository.save(conversation);
-
-        return aiMsg;
+        ChatTurn turn = startTurn(conversationId, "Finding Analysis", contextualMessage, false);
+        String aiResponse = callModel(turn, () -> claudeService.analyzeFinding(findingDescription, documentContext));
+        return completeTurn(turn.conversationId(), aiResponse);
     }
 
     /**
      * Generate a policy document
      */
-    @Transactional
     public ChatMessage generatePolicy(String policyType, String requirements, Long conversationId) {
         log.info("Generating policy: {} for conversation: {}", policyType, conversationId);
 
-        // Get or create conversation
-        ChatConversation conversation;
-        if (conversationId != null) {
-            conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found: " + conversationId));
-        } else {
-            conversation = new ChatConversation();
-            conversation.setTitle("Policy Generation: " + policyType);
-            conversation.setCreatedAt(LocalDateTime.now());
-            conversation.setUpdatedAt(LocalDateTime.now());
-            conversation = conversationRepository.save(conversation);
-        }
-
         // Build request message
         String requestMessage = String.format(
             "Generate a %s policy with the following requirements:\n%s",
             policyType, requirements
         );
 
-        // Save user message
-        ChatMessage userMsg = new ChatMessage();
-        userMsg.setConversation(conversation);
-        userMsg.setRole("user");
-        userMsg.setContent(requestMessage);
-        userMsg.setCreatedAt(LocalDateTime.now());
-        messageRepository.save(userMsg);
-
-        // Call Claude API
-        String policyDocument = claudeService.generatePolicy(policyType, requirements);
-
-        // Save AI response
-        ChatMessage aiMsg = new ChatMessage();
-        aiMsg.setConversation(conversation);
-        aiMsg.setRole("assistant");
-        aiMsg.setContent(policyDocument);
-        aiMsg.setCreatedAt(LocalDateTime.now());
-        aiMsg = messageRepository.save(aiMsg);
-
-        // Update conversation
-        conversation.setUpdatedAt(LocalDateTime.now());
-        conversationRepository.save(conversation);
-
-        return aiMsg;
+        ChatTurn turn = startTurn(conversationId, "Policy Generation: " + policyType, requestMessage, false);
+        String policyDocument = callModel(turn, () -> claudeService.generatePolicy(policyType, requirements));
+        return completeTurn(turn.conversationId(), policyDocument);
     }
 
     /**
      * Improve an existing policy
      */
-    @Transactional
     public ChatMessage improvePolicy(String policyText, String improvementGoals, Long conversationId) {
         log.info("Improving policy for conversation: {}", conversationId);
 
-        // Get or create conversation
-        ChatConversation conversation;
-        if (conversationId != null) {
-            conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found: " + conversationId));
-        } else {
-            conversation = new ChatConversation();
-            conversation.setTitle("Policy Improvement");
-            conversation.setCreatedAt(LocalDateTime.now());
-            conversation.setUpdatedAt(LocalDateTime.now());
-            conversation = conversationRepository.save(conversation);
-        }
-
         // Build request message
         String requestMessage = String.format(
             "Improve this policy:\n%s\n\nImprovement goals:\n%s",
             policyText, improvementGoals
         );
 
-        // Save user message
-        ChatMessage userMsg = new ChatMessage();
-        userMsg.setConversation(conversation);
-        userMsg.setRole("user");
-        userMsg.setContent(requestMessage);
-        userMsg.setCreatedAt(LocalDateTime.now());
-        messageRepository.save(userMsg);
-
-        // Call Claude API
-        String improvedPolicy = claudeService.improvePolicy(policyText, improvementGoals);
-
-        // Save AI response
-        ChatMessage aiMsg = new ChatMessage();
-        aiMsg.setConversation(conversation);
-        aiMsg.setRole("assistant");
-        aiMsg.setContent(improvedPolicy);
-        aiMsg.setCreatedAt(LocalDateTime.now());
-        aiMsg = messageRepository.save(aiMsg);
-
-        // Update conversation
-        conversation.setUpdatedAt(LocalDateTime.now());
-        conversationRepository.save(conversation);
+        ChatTurn turn = startTurn(conversationId, "Policy Improvement", requestMessage, false);
+        String improvedPolicy = callModel(turn, () -> claudeService.improvePolicy(policyText, improvementGoals));
+        return completeTurn(turn.conversationId(), improvedPolicy);
+    }
+
+    /**
+     * Streaming chat, step one: store the user message and return the history to send to Claude.
+     * The stream itself runs outside any transaction; completeStreamedMessage stores the answer,
+     * discardTurn undoes this step if the stream fails.
+     */
+    public ChatTurn startStreamedMessage(String userMessage, Long conversationId) {
+        log.info("Processing streamed chat message for conversation: {}", conversationId);
+        return startTurn(conversationId, generateConversationTitle(userMessage), userMessage, true);
+    }
+
+    /**
+     * Streaming chat, step two: store the completed assistant answer
+     */
+    public ChatMessage completeStreamedMessage(Long conversationId, String aiResponse) {
+        return completeTurn(conversationId, aiResponse);
+    }
+
+    /**
+     * Compensate for a turn whose answer never arrived: remove its user message and, if the
+     * turn created the conversation, the conversation too. Runs in its own transaction.
+     */
+    public void discardTurn(ChatTurn turn) {
+        transactionTemplate.executeWithoutResult(status -> {
+            messageRepository.deleteById(turn.userMessageId());
+            if (turn.newConversation()) {
+                conversationRepository.findById(turn.conversationId()).ifPresent(conversation -> {
+                    messageRepository.deleteByConversation(conversation);
+                    conversationRepository.delete(conversation);
+                });
+            }
+        });
+        log.info("Discarded unanswered message {} in conversation {}", turn.userMessageId(), turn.conversationId());
+    }
+
+    /**
+     * Transaction one: find or create the conversation, store the user message and, for
+     * multi-turn chat, read the history window to answer it with
+     */
+    private ChatTurn startTurn(Long conversationId, String newTitle, String userContent, boolean withHistory) {
+        return transactionTemplate.execute(status -> {
+            // Get or create conversation
+            ChatConversation conversation;
+            if (conversationId != null) {
+                conversation = conversationRepository.findById(conversationId)
+                    .orElseThrow(() -> new RuntimeException("Conversation not found: " + conversationId));
+            } else {
+                conversation = new ChatConversation();
+                conversation.setTitle(newTitle);
+                conversation.setCreatedAt(LocalDateTime.now());
+                conversation.setUpdatedAt(LocalDateTime.now());
+                conversation = conversationRepository.save(conversation);
+            }
+
+            // Save user message
+            ChatMessage userMsg = new ChatMessage();
+            userMsg.setConversation(conversation);
+            userMsg.setRole("user");
+            userMsg.setContent(userContent);
+            userMsg.setCreatedAt(LocalDateTime.now());
+            userMsg = messageRepository.save(userMsg);
+
+            boolean created = conversationId == null;
+            if (!withHistory) {
+                return new ChatTurn(conversation.getId(), List.of(), null, userMsg.getId(), created);
+            }
+            return buildTurn(conversation, userMsg.getId(), created);
+        });
+    }
+
+    /**
+     * The Claude call, outside any transaction. If it fails the turn is discarded, as the
+     * rollback of a single transaction used to do, and the original error is rethrown.
+     */
+    private String callModel(ChatTurn turn, Supplier<String> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            try {
+                discardTurn(turn);
+            } catch (RuntimeException compensationFailure) {
+                log.error("Could not discard message {} after a failed Claude call",
+                    turn.userMessageId(), compensationFailure);
+                e.addSuppressed(compensationFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Transaction two: store the assistant answer and touch the conversation
+     */
+    private ChatMessage completeTurn(Long conversationId, String aiResponse) {
+        return transactionTemplate.execute(status -> {
+            ChatConversation conversation = conversationRepository.findById(conversationId)
+                .orElseThrow(() -> new RuntimeException("Conversation not found: " + conversationId));
+
+            // Save AI response
+            ChatMessage aiMsg = new ChatMessage();
+            aiMsg.setConversation(conversation);
+            aiMsg.setRole("assistant");
+            aiMsg.setContent(aiResponse);
+            aiMsg.setCreatedAt(LocalDateTime.now());
+            aiMsg = messageRepository.save(aiMsg);
 
-        return aiMsg;
+            // Update conversation timestamp
+            conversation.setUpdatedAt(LocalDateTime.now());
+            conversationRepository.save(conversation);
+
+            return aiMsg;
+        });
+    }
+
+    /**
+     * A stored user message and the conversation history to answer it with:
+     * the recent messages verbatim and a summary of the older ones (null if none yet).
+     * newConversation marks a conversation created for this turn, which discardTurn removes.
+     */
+    public record ChatTurn(Long conversationId, List<ClaudeService.ChatMessage> messages, String summary,
+                           Long userMessageId, boolean newConversation) {
+    }
+
+    /**
+     * The history for the next answer: every message the conversation summary does not cover
+     * yet. Once those outgrow chat.history.window-tokens, the oldest ones (up to a user message)
+     * are folded into the summary in the background; they keep being sent verbatim until that
+     * summary is stored, so no message is ever missing from both. The prompt thus stays roughly
+     * the same size however long the conversation gets.
+     */
+    private ChatTurn buildTurn(ChatConversation conversation, Long userMessageId, boolean newConversation) {
+        Long summarizedThrough = conversation.getSummarizedThroughMessageId();
+        List<ChatMessage> unsummarized = messageRepository.findByConversationAndIdGreaterThanOrderByIdAsc(
+            conversation, summarizedThrough != null ? summarizedThrough : 0L);
+
+        int budget = windowTokens * CHARS_PER_TOKEN;
+        int used = 0;
+        int start = unsummarized.size();
+        while (start > 0) {
+            int length = unsummarized.get(start - 1).getContent().length();
+            // The newest message always goes in, whatever its size
+            if (start < unsummarized.size() && used + length > budget) {
+                break;
+            }
+            used += length;
+            start--;
+        }
+        while (start < unsummarized.size() - 1 && !"user".equals(unsummarized.get(start).getRole())) {
+            start++;
+        }
+
+        if (start > 0) {
+            refreshSummaryInBackground(conversation, unsummarized.subList(0, start));
+        }
+
+        List<ClaudeService.ChatMessage> window = unsummarized.stream()
+            .map(msg -> new ClaudeService.ChatMessage(msg.getRole(), msg.getContent()))
+            .collect(Collectors.toList());
+        return new ChatTurn(conversation.getId(), window, conversation.getSummary(), userMessageId, newConversation);
+    }
+
+    /**
+     * Fold the given messages into the summary on the task executor. One refresh per
+     * conversation at a time; the update is conditional, so a stale refresh never wins.
+     */
+    private void refreshSummaryInBackground(ChatConversation conversation, List<ChatMessage> toFold) {
+        Long conversationId = conversation.getId();
+        if (!summarizing.add(conversationId)) {
+            return;
+        }
+        String previousSummary = conversation.getSummary();
+        Long throughId = toFold.get(toFold.size() - 1).getId();
+        List<ClaudeService.ChatMessage> older = toFold.stream()
+            .map(msg -> new ClaudeService.ChatMessage(msg.getRole(), msg.getContent()))
+            .collect(Collectors.toList());
+
+        try {
+            summaryExecutor.execute(() -> {
+                try {
+                    String summary = claudeService.summarizeConversation(previousSummary, older);
+                    conversationRepository.updateSummary(conversationId, summary, throughId);
+                    log.info("Conversation {} summarized through message {}", conversationId, throughId);
+                } catch (Exception e) {
+                    // The messages stay unsummarized and are retried on the next turn
+                    log.warn("Could not summarize conversation {}: {}", conversationId, e.getMessage());
+                } finally {
+                    summarizing.remove(conversationId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            summarizing.remove(conversationId);
+        }
     }
 
     /**
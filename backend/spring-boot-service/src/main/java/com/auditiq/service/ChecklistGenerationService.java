@@ -5,6 +5,7 @@ import com.auditiq.exception.ResourceNotFoundException;
 import com.auditiq.model.AuditDocument;
 import com.auditiq.model.Checklist;
 import com.auditiq.repository.AuditDocumentRepository;
+import com.auditiq.repository.DocumentContentRepository;
 import com.auditiq.repository.ChecklistRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +21,7 @@ public class ChecklistGenerationService {
 
     private final ChecklistRepository checklistRepository;
     private final AuditDocumentRepository documentRepository;
+    private final DocumentContentRepository contentRepository;
     private final PythonMLClient pythonMLClient;
 
     @Transactional
@@ -27,14 +29,15 @@ public class ChecklistGenerationService {
         AuditDocument document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + documentId));
 
-        if (document.getExtractedText() == null || document.getExtractedText().isEmpty()) {
+        String extractedText = contentRepository.findTextByDocumentId(documentId).orElse(null);
+        if (extractedText == null || extractedText.isEmpty()) {
             throw new IllegalArgumentException("Document has no extracted text for analysis");
         }
 
         ChecklistResponse mlResponse;
-        if (document.getExtractedText() != null && !document.getExtractedText().isEmpty()) {
+        if (extractedText != null && !extractedText.isEmpty()) {
             mlResponse = pythonMLClient.generateChecklist(
-                    document.getExtractedText(),
+                    extractedText,
                     document.getStandard().name()
             );
         } else {
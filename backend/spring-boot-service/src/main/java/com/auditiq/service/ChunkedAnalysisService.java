@@ -0,0 +1,319 @@
+package com.auditiq.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Map-reduce analysis for documents too long for one request. The text is split on section
+ * boundaries into chunks that fit a token budget; every chunk is analysed as its own request
+ * on the shared chunk executor (whose size caps chunks in flight across all documents); the
+ * findings are then merged, folding near-identical findings from different chunks into one.
+ * The result has the same JSON shape as a single-request analysis, so parsing and caching
+ * downstream do not change. Wall-clock time follows the slowest chunk, not the length.
+ */
+@Slf4j
+@Service
+public class ChunkedAnalysisService {
+
+    // Same rough ratio the LLM gateway meters with
+    private static final int CHARS_PER_TOKEN = 4;
+
+    // Markdown headings, numbered headings ("4.2 Access Control"), "Section 5"/"Article 12", ALL-CAPS titles
+    private static final Pattern HEADING = Pattern.compile(
+            "^(#{1,6}\\s+\\S.*"
+            + "|\\d+(\\.\\d+)*\\.?\\s+\\p{Lu}.{0,120}"
+            + "|(?i:section|article|chapter|annex|appendix)\\s+[\\w.]+.{0,120}"
+            + "|[\\p{Lu}\\d][\\p{Lu}\\d \\-&/,:]{3,80})$",
+            Pattern.MULTILINE);
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n\\s*\\n");
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "the", "of", "for", "in", "on", "to", "is", "are", "no", "not", "lack", "missing");
+    private static final List<String> SEVERITY_ORDER = List.of("LOW", "MEDIUM", "HIGH", "CRITICAL");
+
+    private final ClaudeService claudeService;
+    private final ObjectMapper objectMapper;
+    private final AsyncTaskExecutor chunkExecutor;
+
+    // Documents estimated above this many input tokens are analysed in chunks
+    @Value("${analysis.chunked.threshold-tokens:40000}")
+    private int thresholdTokens;
+
+    @Value("${analysis.chunked.chunk-tokens:12000}")
+    private int chunkTokens;
+
+    // Title word-set overlap (Jaccard) at which findings from different chunks count as one
+    @Value("${analysis.chunked.merge-similarity:0.6}")
+    private double mergeSimilarity;
+
+    private final Timer duration;
+    private final DistributionSummary chunkCount;
+    private final Counter findingsMerged;
+
+    public ChunkedAnalysisService(ClaudeService claudeService,
+                                  ObjectMapper objectMapper,
+                                  @Qualifier("chunkAnalysisExecutor") AsyncTaskExecutor chunkExecutor,
+                                  MeterRegistry meterRegistry) {
+        this.claudeService = claudeService;
+        this.objectMapper = objectMapper;
+        this.chunkExecutor = chunkExecutor;
+        this.duration = Timer.builder("auditiq.analysis.chunked.duration")
+                .description("Wall-clock time of chunked analyses, split to merge")
+                .register(meterRegistry);
+        this.chunkCount = DistributionSummary.builder("auditiq.analysis.chunked.chunks")
+                .description("Chunks per chunked analysis")
+                .register(meterRegistry);
+        this.findingsMerged = Counter.builder("auditiq.analysis.chunked.findings.merged")
+                .description("Findings folded into a similar finding from another chunk")
+                .register(meterRegistry);
+    }
+
+    public boolean shouldChunk(String documentText) {
+        return documentText.length() / CHARS_PER_TOKEN > thresholdTokens;
+    }
+
+    /**
+     * Analyse the document chunk by chunk and return one merged analysis JSON
+     * ({"findings": [...], "executiveSummary": "..."}). Fails if any chunk fails, rather than
+     * returning findings for only part of the document.
+     */
+    public String analyze(String documentText, String framework) {
+        return duration.record(() -> {
+            List<String> chunks = split(documentText, chunkTokens * CHARS_PER_TOKEN);
+            chunkCount.record(chunks.size());
+            log.info("Chunked analysis: {} characters in {} chunks for {}",
+                    documentText.length(), chunks.size(), framework);
+
+            List<Future<JsonNode>> parts = new ArrayList<>(chunks.size());
+            try {
+                for (int i = 0; i < chunks.size(); i++) {
+                    String chunk = chunks.get(i);
+                    int part = i + 1;
+                    parts.add(chunkExecutor.submit(() -> analyzePart(chunk, framework, part, chunks.size())));
+                }
+                List<JsonNode> results = new ArrayList<>(parts.size());
+                for (Future<JsonNode> part : parts) {
+                    results.add(part.get());
+                }
+                return objectMapper.writeValueAsString(merge(results));
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Chunked analysis failed: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Chunked analysis interrupted", e);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not serialize merged analysis", e);
+            } finally {
+                // Stop the remaining chunks once one has failed; no-op when all are done
+                parts.forEach(part -> part.cancel(true));
+            }
+        });
+    }
+
+    /**
+     * One chunk's analysis as JSON; a response without a findings array is retried once
+     */
+    private JsonNode analyzePart(String chunk, String framework, int part, int parts) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            String response = claudeService.analyzeDocumentPart(chunk, framework, part, parts);
+            if (claudeService.hasFindingsArray(response)) {
+                return objectMapper.readTree(ClaudeService.stripCodeFence(response));
+            }
+            if (attempt == 2) {
+                throw new IllegalStateException("Part " + part + " of " + parts + " returned no findings JSON");
+            }
+            log.warn("Part {}/{} returned no findings JSON, retrying", part, parts);
+        }
+    }
+
+    /**
+     * Split into chunks of at most maxChars: whole sections where they fit, packed greedily in
+     * document order; oversized sections by paragraph, then by sentence, then hard-cut.
+     */
+    static List<String> split(String text, int maxChars) {
+        List<String> pieces = new ArrayList<>();
+        for (String section : splitAt(text, HEADING)) {
+            if (section.length() <= maxChars) {
+                pieces.add(section);
+                continue;
+            }
+            for (String paragraph : PARAGRAPH_BREAK.split(section)) {
+                if (paragraph.length() <= maxChars) {
+                    pieces.add(paragraph + "\n\n");
+                    continue;
+                }
+                for (String sentence : SENTENCE_END.split(paragraph)) {
+                    for (int start = 0; start < sentence.length(); start += maxChars) {
+                        pieces.add(sentence.substring(start, Math.min(sentence.length(), start + maxChars)) + " ");
+                    }
+                }
+            }
+        }
+
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String piece : pieces) {
+            if (current.length() + piece.length() > maxChars && current.length() > 0) {
+                chunks.add(current.toString().strip());
+                current.setLength(0);
+            }
+            current.append(piece);
+        }
+        if (!current.toString().isBlank()) {
+            chunks.add(current.toString().strip());
+        }
+        return chunks;
+    }
+
+    /**
+     * The text cut in front of every line the pattern matches, keeping the text intact
+     */
+    private static List<String> splitAt(String text, Pattern boundary) {
+        List<String> sections = new ArrayList<>();
+        var matcher = boundary.matcher(text);
+        int start = 0;
+        while (matcher.find()) {
+            if (matcher.start() > start) {
+                sections.add(text.substring(start, matcher.start()));
+                start = matcher.start();
+            }
+        }
+        sections.add(text.substring(start));
+        return sections;
+    }
+
+    /**
+     * Reduce: fold each finding into a finding with a similar title from an earlier part,
+     * otherwise keep it. Findings of the same part are never folded together: the model already
+     * kept them apart on purpose. A folded finding keeps the higher severity and impact, the longer description, and the
+     * union of evidence, controls and remediation steps.
+     */
+    ObjectNode merge(List<JsonNode> partResults) {
+        List<ObjectNode> merged = new ArrayList<>();
+        List<Set<String>> titleWords = new ArrayList<>();
+        List<String> summaries = new ArrayList<>();
+
+        for (int i = 0; i < partResults.size(); i++) {
+            JsonNode result = partResults.get(i);
+            String summary = result.path("executiveSummary").asText("");
+            if (!summary.isBlank()) {
+                summaries.add("Part " + (i + 1) + ": " + summary.strip());
+            }
+            List<Set<String>> earlierParts = List.copyOf(titleWords);
+            for (JsonNode finding : result.path("findings")) {
+                if (!finding.isObject()) {
+                    continue;
+                }
+                Set<String> words = titleWords(finding.path("title").asText(""));
+                int match = mostSimilar(earlierParts, words);
+                if (match < 0) {
+                    merged.add(((ObjectNode) finding).deepCopy());
+                    titleWords.add(words);
+                } else {
+                    fold(merged.get(match), (ObjectNode) finding);
+                    findingsMerged.increment();
+                }
+            }
+        }
+
+        ObjectNode root = objectMapper.createObjectNode();
+        root.putArray("findings").addAll(merged);
+        root.put("executiveSummary", String.join("\n\n", summaries));
+        return root;
+    }
+
+    private int mostSimilar(List<Set<String>> candidates, Set<String> words) {
+        int best = -1;
+        double bestScore = mergeSimilarity;
+        for (int i = 0; i < candidates.size(); i++) {
+            double score = jaccard(candidates.get(i), words);
+            if (score >= bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private void fold(ObjectNode target, ObjectNode other) {
+        if (severityRank(other) > severityRank(target)) {
+            target.put("severity", other.path("severity").asText());
+        }
+        if (other.path("impactScore").asInt(0) > target.path("impactScore").asInt(0)) {
+            target.set("impactScore", other.get("impactScore"));
+        }
+        if (other.path("description").asText("").length() > target.path("description").asText("").length()) {
+            target.set("description", other.get("description"));
+        }
+
+        Set<String> evidence = new LinkedHashSet<>();
+        for (JsonNode source : List.of(target, other)) {
+            String text = source.path("evidence").asText("");
+            if (!text.isBlank()) {
+                evidence.add(text.strip());
+            }
+        }
+        target.put("evidence", String.join("\n\n", evidence));
+
+        union(target, other, "affectedControls");
+        union(target, other, "remediationSteps");
+        for (String field : List.of("recommendedTimeline", "bestPractices")) {
+            if (target.path(field).asText("").isBlank() && other.hasNonNull(field)) {
+                target.set(field, other.get(field));
+            }
+        }
+    }
+
+    private static void union(ObjectNode target, ObjectNode other, String field) {
+        Set<String> values = new LinkedHashSet<>();
+        for (JsonNode source : List.of(target, other)) {
+            source.path(field).forEach(value -> values.add(value.asText()));
+        }
+        ArrayNode array = target.putArray(field);
+        values.forEach(array::add);
+    }
+
+    private static int severityRank(JsonNode finding) {
+        return SEVERITY_ORDER.indexOf(finding.path("severity").asText("").toUpperCase(Locale.ROOT));
+    }
+
+    private static Set<String> titleWords(String title) {
+        return Arrays.stream(NON_WORD.split(title.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty() && !STOP_WORDS.contains(word))
+                .collect(Collectors.toSet());
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        Set<String> intersection = new HashSet<>(a);
+        intersection.retainAll(b);
+        return (double) intersection.size() / (a.size() + b.size() - intersection.size());
+    }
+}
@@ -5,15 +5,24 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.*;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class ClaudeService {
 
+    // Bump whenever buildAuditPrompt changes: cached analyses are keyed by it
+    public static final String AUDIT_PROMPT_VERSION = "2";
+
+    private static final String ASSISTANT_SYSTEM_PROMPT = """
+        You are Audit-IQ Assistant, an expert in compliance, audit, and information security.
+        Provide helpful, accurate, and professional guidance. If discussing specific regulations or standards, cite them appropriately.""";
+
+    // Upper bound for a rolling conversation summary
+    private static final int SUMMARY_MAX_TOKENS = 1024;
+
     @Value("${claude.api.key}")
     private String apiKey;
 
@@ -26,11 +35,18 @@ public class ClaudeService {
     @Value("${claude.max.tokens:4096}")
     private int maxTokens;
 
-    private final RestTemplate restTemplate;
+    @Value("${claude.prompt-cache.enabled:true}")
+    private boolean promptCacheEnabled;
+
+    // Below the model's minimum cacheable prefix (1024 tokens for Sonnet) the API ignores the breakpoint
+    @Value("${claude.prompt-cache.min-chars:4096}")
+    private int promptCacheMinChars;
+
+    private final LlmGatewayClient gatewayClient;
     private final ObjectMapper objectMapper;
 
-    public ClaudeService(RestTemplate restTemplate, ObjectMapper objectMapper) {
-        this.restTemplate = restTemplate;
+    public ClaudeService(LlmGatewayClient gatewayClient, ObjectMapper objectMapper) {
+        this.gatewayClient = gatewayClient;
         this.objectMapper = objectMapper;
     }
 
@@ -39,21 +55,39 @@ public class ClaudeService {
      */
     public String analyzeDocument(String documentText, String framework) {
         try {
-            String prompt = buildAuditPrompt(documentText, framework);
-            return callClaudeAPI(prompt);
+            return callClaudeAPI(buildDocumentRequestBody(documentText, buildAuditPrompt(framework), true));
         } catch (Exception e) {
             log.error("Error analyzing document with Claude", e);
             throw new RuntimeException("Failed to analyze document: " + e.getMessage());
         }
     }
 
+    /**
+     * Analyze one part of a document that is too long for a single request (chunked analysis).
+     * Parts are never sent again, so they are not marked for prompt caching.
+     */
+    public String analyzeDocumentPart(String partText, String framework, int part, int parts) {
+        try {
+            String instructions = String.format("""
+                The document above is part %d of %d of a longer document. Report only findings supported \
+                by this part. Do not report something as missing merely because it does not appear in \
+                this part; the other parts are analysed separately.
+                
+                """, part, parts) + buildAuditPrompt(framework);
+            return callClaudeAPI(buildDocumentRequestBody(partText, instructions, false));
+        } catch (Exception e) {
+            log.error("Error analyzing document part {}/{} with Claude", part, parts, e);
+            throw new RuntimeException("Failed to analyze document part " + part + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Generate remediation guidance
      */
     public String generateRemediationGuidance(String findingDescription, String documentContext) {
         try {
-            String prompt = buildRemediationPrompt(findingDescription, documentContext);
-            return callClaudeAPI(prompt);
+            return callClaudeAPI(buildDocumentRequestBody(documentContext,
+                buildRemediationPrompt(findingDescription), true));
         } catch (Exception e) {
             log.error("Error generating remediation guidance", e);
             throw new RuntimeException("Failed to generate remediation: " + e.getMessage());
@@ -77,24 +111,71 @@ public class ClaudeService {
      * Chat with message list (for ChatService compatibility)
      */
     public String chat(List<ChatMessage> messages) {
+        return chat(messages, null);
+    }
+
+    /**
+     * Chat with the recent turns as a native messages array. Older turns can be passed as a
+     * summary, which goes into the system prompt instead of being replayed.
+     */
+    public String chat(List<ChatMessage> messages, String earlierSummary) {
         try {
-            // Convert ChatMessage list to conversation history
-            StringBuilder history = new StringBuilder();
-            for (ChatMessage msg : messages) {
-                history.append(msg.getRole()).append(": ").append(msg.getContent()).append("\n");
-            }
-            
-            // Get the last user message
-            String lastMessage = messages.isEmpty() ? "" : 
-                messages.get(messages.size() - 1).getContent();
-            
-            return chat(lastMessage, history.toString());
+            return callClaudeAPI(buildChatRequestBody(messages, earlierSummary));
         } catch (Exception e) {
             log.error("Error in chat conversation with messages", e);
             throw new RuntimeException("Failed to process chat: " + e.getMessage());
         }
     }
 
+    /**
+     * Chat with message list, streaming the answer: onText receives each text delta as Claude
+     * produces it. Returns the complete answer once the stream ends.
+     */
+    public String chatStream(List<ChatMessage> messages, String earlierSummary, Consumer<String> onText) {
+        Map<String, Object> requestBody = buildChatRequestBody(messages, earlierSummary);
+        requestBody.put("stream", true);
+
+        StringBuilder answer = new StringBuilder();
+        log.info("Calling Claude API (streaming)...");
+        gatewayClient.streamJson(apiUrl, apiHeaders(), requestBody, event -> {
+            JsonNode delta = event.path("delta");
+            if ("content_block_delta".equals(event.path("type").asText())
+                    && "text_delta".equals(delta.path("type").asText())) {
+                String text = delta.path("text").asText();
+                answer.append(text);
+                onText.accept(text);
+            }
+        });
+        log.info("Claude API stream finished: {} characters", answer.length());
+        return answer.toString();
+    }
+
+    /**
+     * Fold older turns into a conversation's running summary, returning the updated summary
+     */
+    public String summarizeConversation(String previousSummary, List<ChatMessage> olderMessages) {
+        StringBuilder transcript = new StringBuilder();
+        for (ChatMessage msg : olderMessages) {
+            transcript.append(msg.getRole()).append(": ").append(msg.getContent()).append("\n\n");
+        }
+        String prompt = String.format("""
+            You maintain the running summary of a compliance assistant conversation.
+            
+            Current summary:
+            %s
+            
+            Messages to add to it:
+            %s
+            
+            Return the updated summary only, at most 300 words. Keep facts, decisions, named documents,
+            findings, controls and standards, and open questions; drop pleasantries and repetition.
+            """, previousSummary != null ? previousSummary : "None", transcript);
+
+        Map<String, Object> requestBody = buildRequestBody(prompt);
+        requestBody.put("max_tokens", SUMMARY_MAX_TOKENS);
+        return callClaudeAPI(requestBody);
+    }
+
     /**
      * Generate policy document
      */
@@ -146,11 +227,12 @@ public class ClaudeService {
     }
 
     /**
-     * Build audit analysis prompt - CRITICAL: Structured JSON output
+     * Build audit analysis prompt - CRITICAL: Structured JSON output.
+     * The document itself is sent ahead of it in its own block (see buildDocumentRequestBody).
      */
-    private String buildAuditPrompt(String documentText, String framework) {
+    private String buildAuditPrompt(String framework) {
         return String.format("""
-            You are an expert compliance auditor specializing in %s. Analyze the following document and provide audit findings in STRICT JSON format.
+            You are an expert compliance auditor specializing in %s. Analyze the document above and provide audit findings in STRICT JSON format.
             
             CRITICAL INSTRUCTIONS:
             1. Return ONLY valid JSON - no markdown, no explanations, no preamble
@@ -178,28 +260,22 @@ public class ClaudeService {
               "executiveSummary": "Brief summary of findings"
             }
             
-            Document to analyze:
-            %s
-            
             Framework: %s
             
             Return ONLY the JSON object. No additional text.
-            """, framework, documentText, framework);
+            """, framework, framework);
     }
 
     /**
      * Build remediation guidance prompt
      */
-    private String buildRemediationPrompt(String findingDescription, String documentContext) {
+    private String buildRemediationPrompt(String findingDescription) {
         return String.format("""
-            You are a compliance remediation expert. Provide detailed, actionable guidance for addressing this audit finding.
+            You are a compliance remediation expert. Using the document above as context, provide detailed, actionable guidance for addressing this audit finding.
             
             Finding:
             %s
             
-            Document Context:
-            %s
-            
             Provide:
             1. Root cause analysis
             2. Step-by-step remediation plan
@@ -209,7 +285,7 @@ public class ClaudeService {
             6. Best practices to prevent recurrence
             
             Be specific and actionable.
-            """, findingDescription, documentContext);
+            """, findingDescription);
     }
 
     /**
@@ -228,6 +304,42 @@ public class ClaudeService {
             """, conversationHistory != null ? conversationHistory : "None", message);
     }
 
+    /**
+     * Chat request with the turns as the messages array. The API wants alternating roles
+     * starting with the user, so leading assistant turns are dropped and consecutive turns of
+     * one role (e.g. a question whose answer failed) are joined.
+     */
+    private Map<String, Object> buildChatRequestBody(List<ChatMessage> messages, String earlierSummary) {
+        List<Map<String, String>> turns = new ArrayList<>();
+        for (ChatMessage msg : messages) {
+            String role = "assistant".equals(msg.getRole()) ? "assistant" : "user";
+            if (turns.isEmpty() && role.equals("assistant")) {
+                continue;
+            }
+            Map<String, String> last = turns.isEmpty() ? null : turns.get(turns.size() - 1);
+            if (last != null && last.get("role").equals(role)) {
+                last.put("content", last.get("content") + "\n\n" + msg.getContent());
+            } else {
+                Map<String, String> turn = new HashMap<>();
+                turn.put("role", role);
+                turn.put("content", msg.getContent());
+                turns.add(turn);
+            }
+        }
+
+        String system = ASSISTANT_SYSTEM_PROMPT;
+        if (earlierSummary != null && !earlierSummary.isBlank()) {
+            system += "\n\nSummary of the earlier part of this conversation:\n" + earlierSummary;
+        }
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("max_tokens", maxTokens);
+        requestBody.put("system", system);
+        requestBody.put("messages", turns);
+        return requestBody;
+    }
+
     /**
      * Build policy generation prompt
      */
@@ -251,37 +363,19 @@ public class ClaudeService {
     }
 
     /**
-     * Call Claude API with proper error handling
+     * Call Claude API through the gateway client (pooling, rate limiting and retries live there)
      */
     private String callClaudeAPI(String prompt) {
-        try {
-            // Build request
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", model);
-            requestBody.put("max_tokens", maxTokens);
-            requestBody.put("messages", List.of(
-                Map.of("role", "user", "content", prompt)
-            ));
-
-            // Set headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("x-api-key", apiKey);
-            headers.set("anthropic-version", "2023-06-01");
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+        return callClaudeAPI(buildRequestBody(prompt));
+    }
 
+    private String callClaudeAPI(Map<String, Object> requestBody) {
+        try {
             // Make API call
             log.info("Calling Claude API...");
-            ResponseEntity<String> response = restTemplate.exchange(
-                apiUrl,
-                HttpMethod.POST,
-                entity,
-                String.class
-            );
+            JsonNode responseJson = gatewayClient.postJson(apiUrl, apiHeaders(), requestBody);
 
             // Parse response
-            JsonNode responseJson = objectMapper.readTree(response.getBody());
             JsonNode contentArray = responseJson.get("content");
             
             if (contentArray != null && contentArray.isArray() && contentArray.size() > 0) {
@@ -298,26 +392,73 @@ public class ClaudeService {
         }
     }
 
+    private Map<String, Object> buildRequestBody(String prompt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("max_tokens", maxTokens);
+        requestBody.put("messages", List.of(
+            Map.of("role", "user", "content", prompt)
+        ));
+        return requestBody;
+    }
+
+    /**
+     * Request whose first content block is the document, marked as a prompt-cache breakpoint.
+     * The block is byte-identical for every call about the same document, so analysis,
+     * remediation and finding questions within the cache lifetime (5 minutes, refreshed on
+     * each hit) read it from the cache instead of processing it again. The task-specific
+     * instructions follow in a second, uncached block.
+     */
+    private Map<String, Object> buildDocumentRequestBody(String documentText, String instructions,
+                                                         boolean cacheable) {
+        String text = documentText != null ? documentText : "";
+        Map<String, Object> documentBlock = new HashMap<>();
+        documentBlock.put("type", "text");
+        documentBlock.put("text", "<document>\n" + text + "\n</document>");
+        if (cacheable && promptCacheEnabled && text.length() >= promptCacheMinChars) {
+            documentBlock.put("cache_control", Map.of("type", "ephemeral"));
+        }
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("max_tokens", maxTokens);
+        requestBody.put("messages", List.of(
+            Map.of("role", "user", "content", List.of(
+                documentBlock,
+                Map.of("type", "text", "text", instructions)
+            ))
+        ));
+        return requestBody;
+    }
+
+    private Map<String, String> apiHeaders() {
+        return Map.of(
+                "x-api-key", apiKey,
+                "anthropic-version", "2023-06-01");
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * Whether an analysis response parses into a findings array (and is therefore worth caching)
+     */
+    public boolean hasFindingsArray(String claudeResponse) {
+        try {
+            return objectMapper.readTree(stripCodeFence(claudeResponse)).path("findings").isArray();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     /**
      * Parse Claude's JSON response into structured findings
      */
     public List<Map<String, Object>> parseAuditFindings(String claudeResponse) {
         try {
-            // Clean the response - remove markdown code blocks if present
-            String cleanResponse = claudeResponse.trim();
-            if (cleanResponse.startsWith("```json")) {
-                cleanResponse = cleanResponse.substring(7);
-            }
-            if (cleanResponse.startsWith("```")) {
-                cleanResponse = cleanResponse.substring(3);
-            }
-            if (cleanResponse.endsWith("```")) {
-                cleanResponse = cleanResponse.substring(0, cleanResponse.length() - 3);
-            }
-            cleanResponse = cleanResponse.trim();
-
             // Parse JSON
-            JsonNode rootNode = objectMapper.readTree(cleanResponse);
+            JsonNode rootNode = objectMapper.readTree(stripCodeFence(claudeResponse));
             JsonNode findingsNode = rootNode.get("findings");
             
             if (findingsNode == null || !findingsNode.isArray()) {
@@ -360,6 +501,23 @@ public class ClaudeService {
         }
     }
 
+    /**
+     * Clean the response - remove markdown code blocks if present
+     */
+    static String stripCodeFence(String claudeResponse) {
+        String cleanResponse = claudeResponse.trim();
+        if (cleanResponse.startsWith("```json")) {
+            cleanResponse = cleanResponse.substring(7);
+        }
+        if (cleanResponse.startsWith("```")) {
+            cleanResponse = cleanResponse.substring(3);
+        }
+        if (cleanResponse.endsWith("```")) {
+            cleanResponse = cleanResponse.substring(0, cleanResponse.length() - 3);
+        }
+        return cleanResponse.trim();
+    }
+
     private String getTextValue(JsonNode node, String fieldName) {
         return node.has(fieldName) ? node.get(fieldName).asText() : "";
     }
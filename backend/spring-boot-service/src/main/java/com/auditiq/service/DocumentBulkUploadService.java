@@ -0,0 +1,327 @@
+package com.auditiq.service;
+
+import com.auditiq.dto.BulkUploadResult;
+import com.auditiq.model.AuditDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Bulk ingestion of many files in one request.
+ * Files (or zip entries) are read sequentially off the request and spooled to disk one at a
+ * time; store + extract for each spooled file then runs on the bulk executor. A semaphore
+ * caps the number of files in flight, which also bounds spool disk usage. Each file's result
+ * is written as an NDJSON line the moment it finishes. Bytes are counted while spooling, so a
+ * zip entry that inflates past documents.bulk.max-entry-bytes, or a batch past
+ * documents.bulk.max-batch-bytes, stops the batch instead of filling the spool disk.
+ *
+ * Bulk uploads stop at COMPLETED after extraction; analysis is left to POST /{id}/analyze so a
+ * large batch does not flood the ML service.
+ */
+@Slf4j
+@Service
+public class DocumentBulkUploadService {
+
+    private final DocumentManagementService documentService;
+    private final DocumentIngestService ingestService;
+    private final ObjectMapper objectMapper;
+    private final Executor bulkExecutor;
+    private final Semaphore inFlight;
+
+    @Value("${documents.bulk.max-entries:1000}")
+    private int maxEntries;
+
+    // Uncompressed size limit of a single zip entry (512 MB)
+    @Value("${documents.bulk.max-entry-bytes:536870912}")
+    private long maxEntryBytes;
+
+    // Limit on all bytes spooled for one batch, files and uncompressed zip entries alike (10 GB)
+    @Value("${documents.bulk.max-batch-bytes:10737418240}")
+    private long maxBatchBytes;
+
+    public DocumentBulkUploadService(DocumentManagementService documentService,
+                                     DocumentIngestService ingestService,
+                                     ObjectMapper objectMapper,
+                                     @Qualifier("documentBulkExecutor") Executor bulkExecutor,
+                                     @Value("${documents.bulk.concurrency:4}") int concurrency) {
+        this.documentService = documentService;
+        this.ingestService = ingestService;
+        this.objectMapper = objectMapper;
+        this.bulkExecutor = bulkExecutor;
+        this.inFlight = new Semaphore(concurrency, true);
+    }
+
+    /**
+     * Ingest every file (expanding zip archives) and stream one result line per file to out
+     */
+    public void upload(List<MultipartFile> files, String standard, String uploadedBy, OutputStream out)
+            throws IOException {
+        BatchWriter writer = new BatchWriter(out);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        int index = 0;
+        long spooled = 0;
+
+        try {
+            files:
+            for (MultipartFile file : files) {
+                if (isZip(file)) {
+                    try (ZipInputStream zip = new ZipInputStream(file.getInputStream())) {
+                        ZipEntry entry;
+                        while ((entry = zip.getNextEntry()) != null) {
+                            if (entry.isDirectory() || isHiddenEntry(entry.getName())) {
+                                continue;
+                            }
+                            String fileName = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+                            // spool() closes its input - keep the archive stream open for the next entry
+                            LimitedInputStream input = maxEntryBytes < maxBatchBytes - spooled
+                                    ? new LimitedInputStream(StreamUtils.nonClosing(zip), maxEntryBytes,
+                                            "Zip entry exceeds the limit of " + maxEntryBytes + " bytes uncompressed")
+                                    : batchLimited(StreamUtils.nonClosing(zip), spooled);
+                            boolean more = submit(index++, input, fileName, guessContentType(fileName),
+                                    standard, uploadedBy, writer, pending);
+                            spooled += input.getCount();
+                            // Skipping the rest of an oversized entry would still inflate it: stop here
+                            if (!more || input.isExceeded()) {
+                                break files;
+                            }
+                        }
+                    }
+                } else {
+                    LimitedInputStream input = batchLimited(file.getInputStream(), spooled);
+                    boolean more = submit(index++, input, file.getOriginalFilename(),
+                            file.getContentType(), standard, uploadedBy, writer, pending);
+                    spooled += input.getCount();
+                    if (!more || input.isExceeded()) {
+                        break;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a bulk upload slot", e);
+        } finally {
+            // Let already admitted files finish so every spooled file is cleaned up and reported
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        }
+        log.info("Bulk upload finished: {} files", index);
+    }
+
+    /**
+     * Spool one file and hand it to the bulk executor. Returns false once the batch limit is hit.
+     */
+    private boolean submit(int index, InputStream input, String fileName, String contentType,
+                           String standard, String uploadedBy, BatchWriter writer,
+                           List<CompletableFuture<Void>> pending) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        if (index >= maxEntries) {
+            writer.write(failed(index, fileName, start,
+                    new IllegalStateException("Bulk upload exceeds the limit of " + maxEntries + " files")));
+            return false;
+        }
+
+        inFlight.acquire();
+
+        DocumentIngestService.IngestedUpload upload;
+        try {
+            upload = ingestService.spool(input, documentService.generateS3Key(fileName));
+        } catch (IOException | RuntimeException e) {
+            inFlight.release();
+            writer.write(failed(index, fileName, start, e));
+            return true;
+        }
+
+        try {
+            pending.add(CompletableFuture.runAsync(() -> {
+                try (upload) {
+                    writer.write(process(index, upload, fileName, contentType, standard, uploadedBy, start));
+                } finally {
+                    inFlight.release();
+                }
+            }, bulkExecutor));
+        } catch (RuntimeException e) {
+            upload.close();
+            inFlight.release();
+            throw e;
+        }
+        return true;
+    }
+
+    private BulkUploadResult process(int index, DocumentIngestService.IngestedUpload upload, String fileName,
+                                     String contentType, String standard, String uploadedBy, long start) {
+        Long documentId = null;
+        try {
+            Optional<AuditDocument> duplicate = documentService.registerDuplicate(
+                    upload.getSha256(), fileName, contentType, standard, uploadedBy);
+            if (duplicate.isPresent()) {
+                return result(index, fileName, duplicate.get().getId(), "DUPLICATE", upload.getSize(), start);
+            }
+
+            AuditDocument document = documentService.createDocumentRecord(fileName, contentType,
+                    upload.getSize(), upload.getSha256(), upload.getS3Key(), standard, uploadedBy);
+            documentId = document.getId();
+            documentService.updateDocumentStatus(documentId, AuditDocument.ProcessingStatus.PROCESSING);
+
+            ingestService.store(upload, contentType);
+            documentService.saveExtractedText(documentId,
+                    documentService.extractText(upload.getSpoolFile(), contentType, fileName));
+            documentService.updateDocumentStatus(documentId, AuditDocument.ProcessingStatus.COMPLETED);
+
+            return result(index, fileName, documentId, "COMPLETED", upload.getSize(), start);
+
+        } catch (Exception e) {
+            log.error("Bulk upload of {} failed: {}", fileName, e.getMessage(), e);
+            if (documentId != null) {
+                markFailed(documentId);
+            }
+            BulkUploadResult result = failed(index, fileName, start, e);
+            result.setId(documentId);
+            return result;
+        }
+    }
+
+    private void markFailed(Long documentId) {
+        try {
+            documentService.updateDocumentStatus(documentId, AuditDocument.ProcessingStatus.FAILED);
+        } catch (Exception e) {
+            log.error("Could not mark document {} as FAILED", documentId, e);
+        }
+    }
+
+    private static BulkUploadResult result(int index, String fileName, Long id, String status, long size, long start) {
+        return BulkUploadResult.builder()
+                .index(index)
+                .fileName(fileName)
+                .id(id)
+                .status(status)
+                .fileSize(size)
+                .durationMs(System.currentTimeMillis() - start)
+                .build();
+    }
+
+    private static BulkUploadResult failed(int index, String fileName, long start, Exception e) {
+        return BulkUploadResult.builder()
+                .index(index)
+                .fileName(fileName)
+                .status("FAILED")
+                .durationMs(System.currentTimeMillis() - start)
+                .error(e.getMessage())
+                .build();
+    }
+
+    private LimitedInputStream batchLimited(InputStream input, long spooled) {
+        return new LimitedInputStream(input, maxBatchBytes - spooled,
+                "Bulk upload exceeds the limit of " + maxBatchBytes + " bytes");
+    }
+
+    private static boolean isZip(MultipartFile file) {
+        String contentType = file.getContentType();
+        String fileName = file.getOriginalFilename();
+        return "application/zip".equalsIgnoreCase(contentType)
+                || "application/x-zip-compressed".equalsIgnoreCase(contentType)
+                || (fileName != null && fileName.toLowerCase().endsWith(".zip"));
+    }
+
+    private static boolean isHiddenEntry(String name) {
+        String baseName = name.substring(name.lastIndexOf('/') + 1);
+        return name.startsWith("__MACOSX/") || baseName.startsWith(".");
+    }
+
+    private static String guessContentType(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+    }
+
+    /**
+     * Counts the bytes read and fails the read that goes past the limit
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private final String message;
+        private long count;
+        private boolean exceeded;
+
+        LimitedInputStream(InputStream in, long limit, String message) {
+            super(in);
+            this.limit = limit;
+            this.message = message;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                counted(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                counted(read);
+            }
+            return read;
+        }
+
+        private void counted(int read) throws IOException {
+            count += read;
+            if (count > limit) {
+                exceeded = true;
+                throw new IOException(message);
+            }
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        boolean isExceeded() {
+            return exceeded;
+        }
+    }
+
+    /**
+     * Serializes result lines from the worker threads onto the response stream
+     */
+    private class BatchWriter {
+
+        private final OutputStream out;
+
+        BatchWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        synchronized void write(BulkUploadResult result) {
+            try {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                // Client went away - keep processing, the documents are still recorded
+                log.warn("Could not write bulk upload result for {}: {}", result.getFileName(), e.getMessage());
+            }
+        }
+    }
+}
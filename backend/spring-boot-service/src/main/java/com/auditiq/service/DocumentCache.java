@@ -0,0 +1,302 @@
+package com.auditiq.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Node-local, size-bounded LRU disk cache in front of blob store reads.
+ * Entries are keyed by storage key + ETag, so a rewritten object is never served stale;
+ * one HEAD per lookup replaces a full object transfer on a hit. Misses on the request path
+ * are filled in the background while the caller streams from storage as usual.
+ */
+@Slf4j
+@Service
+@ConditionalOnExpression("${documents.cache.enabled:true} and '${storage.backend:s3}' == 's3'")
+public class DocumentCache {
+
+    private final BlobStore blobStore;
+    private final Executor fillExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${documents.cache.dir:${java.io.tmpdir}/auditiq-cache}")
+    private String cacheDir;
+
+    @Value("${documents.cache.max-size-mb:2048}")
+    private long maxSizeMb;
+
+    private Path root;
+
+    // Access-ordered: iteration starts at the least recently used entry. Guarded by "this".
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final Set<String> filling = ConcurrentHashMap.newKeySet();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter bytesSaved;
+
+    public DocumentCache(BlobStore blobStore,
+                         @Qualifier("taskExecutor") Executor fillExecutor,
+                         MeterRegistry meterRegistry) {
+        this.blobStore = blobStore;
+        this.fillExecutor = fillExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Path.of(cacheDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        loadExistingEntries();
+
+        hits = Counter.builder("auditiq.document.cache.requests").tag("result", "hit")
+                .description("Document cache lookups").register(meterRegistry);
+        misses = Counter.builder("auditiq.document.cache.requests").tag("result", "miss")
+                .description("Document cache lookups").register(meterRegistry);
+        bytesSaved = Counter.builder("auditiq.document.cache.bytes.saved")
+                .description("Bytes served from the disk cache instead of storage")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("auditiq.document.cache.hit.ratio", this, DocumentCache::hitRatio)
+                .description("Share of document cache lookups that were hits")
+                .register(meterRegistry);
+        Gauge.builder("auditiq.document.cache.size", this, DocumentCache::sizeBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        log.info("Document cache at {} holding {} entries ({} bytes)", root, entries.size(), totalBytes);
+    }
+
+    /**
+     * The cached copy of the blob if present, already opened so a later eviction cannot pull
+     * it away mid-response; the caller must close it. On a miss the copy is filled in the
+     * background and empty is returned, so the caller can stream from storage without waiting.
+     */
+    public Optional<FileChannel> lookup(String key) throws IOException {
+        String etag = blobStore.etag(key);
+        Optional<FileChannel> cached = hit(key, etag);
+        if (cached.isEmpty()) {
+            fillInBackground(key, etag);
+        }
+        return cached;
+    }
+
+    /**
+     * The cached copy of the blob, opened, downloading it first on a miss. The caller must close it.
+     */
+    public FileChannel fetch(String key) throws IOException {
+        String etag = blobStore.etag(key);
+        Optional<FileChannel> cached = hit(key, etag);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        return fill(key, etag);
+    }
+
+    /**
+     * Copy [start, start + length) of an opened cached copy to the output, then close it.
+     * The target is a servlet output stream, so this is a buffered user-space copy, not sendfile;
+     * what the cache saves is the storage round trip.
+     */
+    public void serve(FileChannel cached, long start, long length, OutputStream out) throws IOException {
+        try (FileChannel channel = cached) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+            bytesSaved.increment(position - start);
+        }
+    }
+
+    private Optional<FileChannel> hit(String key, String etag) {
+        String name = entryName(key, etag);
+        Path file = root.resolve(name);
+        synchronized (this) {
+            if (entries.get(name) != null) {
+                // Opened under the lock: eviction (also under it) can only unlink the file after this
+                FileChannel channel = open(file);
+                if (channel != null) {
+                    hits.increment();
+                    touch(file);
+                    return Optional.of(channel);
+                }
+            }
+            Long stale = entries.remove(name);
+            if (stale != null) {
+                totalBytes -= stale;
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    private void fillInBackground(String key, String etag) {
+        String name = entryName(key, etag);
+        if (!filling.add(name)) {
+            return;
+        }
+        try {
+            fillExecutor.execute(() -> {
+                try {
+                    fill(key, etag);
+                } catch (Exception e) {
+                    log.warn("Could not cache {}: {}", key, e.getMessage());
+                } finally {
+                    filling.remove(name);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            filling.remove(name);
+        }
+    }
+
+    private FileChannel fill(String key, String etag) throws IOException {
+        String name = entryName(key, etag);
+        Path file = root.resolve(name);
+        Path temp = Files.createTempFile(root, name + "-", ".tmp");
+        try {
+            blobStore.get(key, temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        long size = Files.size(file);
+        FileChannel channel;
+        synchronized (this) {
+            Long previous = entries.put(name, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            evict(name);
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        }
+        log.debug("Cached {} ({} bytes)", key, size);
+        return channel;
+    }
+
+    private static FileChannel open(Path file) {
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Drop least recently used entries until the cache fits, never evicting the entry just added
+     */
+    private void evict(String keep) {
+        long maxBytes = maxSizeMb * 1024 * 1024;
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= eldest.getValue();
+            try {
+                // Readers that already opened the file keep reading it after the unlink
+                Files.deleteIfExists(root.resolve(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("Could not evict cache entry {}: {}", eldest.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private void loadExistingEntries() throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            files.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().endsWith(".tmp"))
+                    .sorted(Comparator.comparing(DocumentCache::lastModified))
+                    .forEach(file -> {
+                        try {
+                            long size = Files.size(file);
+                            entries.put(file.getFileName().toString(), size);
+                            totalBytes += size;
+                        } catch (IOException e) {
+                            log.warn("Skipping unreadable cache entry {}", file);
+                        }
+                    });
+        }
+        synchronized (this) {
+            evict(null);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            // Lets a restart rebuild the LRU order from modification times
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // Ordering hint only
+        }
+    }
+
+    private synchronized double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private synchronized double sizeBytes() {
+        return totalBytes;
+    }
+
+    private static String entryName(String key, String etag) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(key.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(etag.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
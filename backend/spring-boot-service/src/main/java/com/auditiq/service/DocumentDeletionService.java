@@ -0,0 +1,78 @@
+package com.auditiq.service;
+
+import com.auditiq.dto.BulkDeleteResult;
+import com.auditiq.model.AuditDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes documents: rows first, in one transaction, then the stored objects nobody
+ * references any more, in batches. Objects that fail to delete are reported to the caller
+ * and picked up later by {@link StorageOrphanReconciler}.
+ */
+@Slf4j
+@Service
+public class DocumentDeletionService {
+
+    private final DocumentManagementService documentService;
+    private final BlobStore blobStore;
+    private final Counter storageFailures;
+
+    @Value("${documents.bulk-delete.max-ids:1000}")
+    private int maxIds;
+
+    public DocumentDeletionService(DocumentManagementService documentService,
+                                   BlobStore blobStore,
+                                   MeterRegistry meterRegistry) {
+        this.documentService = documentService;
+        this.blobStore = blobStore;
+        this.storageFailures = Counter.builder("auditiq.documents.delete.storage.failures")
+                .description("Stored objects left behind because their delete failed")
+                .register(meterRegistry);
+    }
+
+    public BulkDeleteResult deleteDocuments(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("No document ids given");
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.size() > maxIds) {
+            throw new IllegalArgumentException("At most " + maxIds + " documents can be deleted per request");
+        }
+
+        List<AuditDocument> deleted = documentService.deleteDocumentRecords(requested);
+        deleted.forEach(document -> requested.remove(document.getId()));
+
+        Set<String> keys = documentService.unreferencedKeys(
+                deleted.stream().map(AuditDocument::getS3Key).toList());
+        List<String> failedKeys = List.of();
+        try {
+            blobStore.deleteAll(keys);
+        } catch (BlobStore.DeleteFailedException e) {
+            failedKeys = e.getFailedKeys();
+        } catch (IOException e) {
+            log.error("Storage delete failed: {}", e.getMessage(), e);
+            failedKeys = List.copyOf(keys);
+        }
+        if (!failedKeys.isEmpty()) {
+            storageFailures.increment(failedKeys.size());
+            log.error("{} stored object(s) could not be deleted and are left for reconciliation: {}",
+                    failedKeys.size(), failedKeys);
+        }
+
+        return BulkDeleteResult.builder()
+                .deleted(deleted.size())
+                .notFound(List.copyOf(requested))
+                .objectsDeleted(keys.size() - failedKeys.size())
+                .failedKeys(failedKeys)
+                .build();
+    }
+}
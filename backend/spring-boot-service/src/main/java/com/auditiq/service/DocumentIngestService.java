@@ -0,0 +1,133 @@
+package com.auditiq.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Upload ingestion for the async pipeline.
+ * Reads the request body exactly once into a spooled temp file while hashing it; the text
+ * extractors read the spool from disk and the store stage uploads it to the blob store.
+ * Heap use per upload is one copy buffer, regardless of the file size.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DocumentIngestService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BlobStore blobStore;
+
+    @Value("${documents.ingest.spool-dir:${java.io.tmpdir}}")
+    private String spoolDir;
+
+    /**
+     * Spool and hash the upload without touching the blob store: the request thread only
+     * pays for a local disk write, and the store stage pushes the spooled file to the blob
+     * store later via {@link #store}.
+     */
+    public IngestedUpload spool(InputStream input, String s3Key) throws IOException {
+        MessageDigest digest = newSha256Digest();
+        Path spoolFile = Files.createTempFile(Path.of(spoolDir), "auditiq-upload-", ".spool");
+
+        try (InputStream in = input; OutputStream spool = Files.newOutputStream(spoolFile)) {
+            long size = copy(in, digest, spool);
+            return completeIngest(s3Key, digest, size, spoolFile);
+
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spoolFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Download an already stored blob into a spool file and hash it - the counterpart of
+     * {@link #spool} for uploads that went straight to storage
+     */
+    public IngestedUpload fetch(String s3Key) throws IOException {
+        Path spoolFile = Files.createTempFile(Path.of(spoolDir), "auditiq-upload-", ".spool");
+        try {
+            blobStore.get(s3Key, spoolFile);
+
+            MessageDigest digest = newSha256Digest();
+            try (InputStream in = Files.newInputStream(spoolFile)) {
+                long size = copy(in, digest, OutputStream.nullOutputStream());
+                return completeIngest(s3Key, digest, size, spoolFile);
+            }
+
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spoolFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Upload a previously spooled file to the blob store under its key
+     */
+    public void store(IngestedUpload upload, String contentType) throws IOException {
+        blobStore.put(upload.getS3Key(), upload.getSpoolFile(), contentType);
+    }
+
+    /**
+     * Single read of the input, teed into the digest and the output. Returns the byte count.
+     */
+    private static long copy(InputStream in, MessageDigest digest, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            out.write(buffer, 0, read);
+            size += read;
+        }
+        return size;
+    }
+
+    private IngestedUpload completeIngest(String s3Key, MessageDigest digest, long size, Path spoolFile) {
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        log.info("Ingested {} bytes for {} (sha256: {})", size, s3Key, sha256);
+        return new IngestedUpload(s3Key, sha256, size, spoolFile);
+    }
+
+    private MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * A spooled, hashed upload. Closing it removes the spooled temp file.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class IngestedUpload implements AutoCloseable {
+        private final String s3Key;
+        private final String sha256;
+        private final long size;
+        private final Path spoolFile;
+
+        @Override
+        public void close() {
+            try {
+                Files.deleteIfExists(spoolFile);
+            } catch (IOException e) {
+                log.warn("Could not delete spool file {}: {}", spoolFile, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.auditiq.service;
+
+import com.auditiq.model.AuditDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous document ingestion.
+ * The request thread only spools the upload and persists an UPLOADED row; the
+ * store -> extract (-> analyze) stages then run on their own bounded executors and
+ * drive the document through PROCESSING to COMPLETED or FAILED. Analysis results are
+ * not stored, so the analyze stage is off by default: clients ask for an analysis with
+ * POST /api/documents/{id}/analyze once the document is COMPLETED.
+ */
+@Slf4j
+@Service
+public class DocumentIngestionPipeline {
+
+    private final DocumentManagementService documentService;
+    private final DocumentIngestService ingestService;
+    private final AIAnalysisService aiAnalysisService;
+    private final Executor storeExecutor;
+    private final Executor extractExecutor;
+    private final Executor analyzeExecutor;
+
+    // Runs an analysis after extraction only as a smoke test of the ML service: the result is
+    // discarded and the document completes even on the fallback analysis
+    @Value("${documents.pipeline.analyze-on-upload:false}")
+    private boolean analyzeOnUpload;
+
+    public DocumentIngestionPipeline(DocumentManagementService documentService,
+                                     DocumentIngestService ingestService,
+                                     AIAnalysisService aiAnalysisService,
+                                     @Qualifier("documentStoreExecutor") Executor storeExecutor,
+                                     @Qualifier("documentExtractExecutor") Executor extractExecutor,
+                                     @Qualifier("documentAnalyzeExecutor") Executor analyzeExecutor) {
+        this.documentService = documentService;
+        this.ingestService = ingestService;
+        this.aiAnalysisService = aiAnalysisService;
+        this.storeExecutor = storeExecutor;
+        this.extractExecutor = extractExecutor;
+        this.analyzeExecutor = analyzeExecutor;
+    }
+
+    /**
+     * Accept an upload: spool it, persist the UPLOADED row and schedule the background stages.
+     * Throws {@link RejectedExecutionException} when the store stage queue is full.
+     */
+    public AuditDocument submit(MultipartFile file, String standard, String uploadedBy) {
+        String fileName = file.getOriginalFilename();
+        String contentType = file.getContentType();
+        String s3Key = documentService.generateS3Key(fileName);
+
+        DocumentIngestService.IngestedUpload upload;
+        try {
+            upload = ingestService.spool(file.getInputStream(), s3Key);
+        } catch (IOException e) {
+            log.error("Error spooling upload {}: {}", fileName, e.getMessage(), e);
+            throw new RuntimeException("Failed to upload document: " + e.getMessage());
+        }
+
+        AuditDocument document;
+        try {
+            Optional<AuditDocument> duplicate = documentService.registerDuplicate(
+                    upload.getSha256(), fileName, contentType, standard, uploadedBy);
+            if (duplicate.isPresent()) {
+                // Same bytes already stored and extracted - nothing left for the pipeline to do
+                upload.close();
+                return duplicate.get();
+            }
+
+            document = documentService.createDocumentRecord(fileName, contentType,
+                    upload.getSize(), upload.getSha256(), s3Key, standard, uploadedBy);
+        } catch (RuntimeException e) {
+            upload.close();
+            throw e;
+        }
+
+        Long documentId = document.getId();
+        try {
+            CompletableFuture
+                    .runAsync(() -> store(documentId, upload, contentType), storeExecutor)
+                    .thenRunAsync(() -> extract(documentId, upload, contentType, fileName), extractExecutor)
+                    .whenComplete((ignored, error) -> upload.close())
+                    .thenRunAsync(() -> analyze(documentId), analyzeExecutor)
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            fail(documentId, error);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            upload.close();
+            fail(documentId, e);
+            throw e;
+        }
+
+        log.info("Document {} accepted for background processing", documentId);
+        return document;
+    }
+
+    /**
+     * Register a document whose bytes were uploaded straight to storage and schedule its
+     * fetch -> extract -> analyze stages. Throws {@link RejectedExecutionException} when the
+     * fetch stage queue is full.
+     */
+    public AuditDocument submitStored(String s3Key, long size, String fileName, String contentType,
+                                      String standard, String uploadedBy) {
+        AuditDocument document = documentService.createDocumentRecord(fileName, contentType,
+                size, null, s3Key, standard, uploadedBy);
+        Long documentId = document.getId();
+
+        try {
+            CompletableFuture<DocumentIngestService.IngestedUpload> fetched =
+                    CompletableFuture.supplyAsync(() -> fetch(documentId, s3Key), storeExecutor);
+            fetched
+                    .thenAcceptAsync(upload -> {
+                        if (upload != null) {
+                            extract(documentId, upload, contentType, fileName);
+                        }
+                    }, extractExecutor)
+                    .whenComplete((ignored, error) -> closeFetched(fetched))
+                    // A null upload means the content was a duplicate and is already complete
+                    .thenRunAsync(() -> {
+                        if (fetched.join() != null) {
+                            analyze(documentId);
+                        }
+                    }, analyzeExecutor)
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            fail(documentId, error);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            fail(documentId, e);
+            throw e;
+        }
+
+        log.info("Directly uploaded document {} accepted for background processing", documentId);
+        return document;
+    }
+
+    /**
+     * Pull a directly uploaded object down to a spool file and hash it.
+     * Returns null when the content duplicates an already processed document.
+     */
+    private DocumentIngestService.IngestedUpload fetch(Long documentId, String s3Key) {
+        documentService.updateDocumentStatus(documentId, AuditDocument.ProcessingStatus.PROCESSING);
+        try {
+            DocumentIngestService.IngestedUpload upload = ingestService.fetch(s3Key);
+
+            boolean duplicate;
+            try {
+                duplicate = documentService.adoptDuplicate(documentId, upload.getSha256());
+            } catch (IOException | RuntimeException e) {
+                upload.close();
+                throw e;
+            }
+            if (duplicate) {
+                upload.close();
+                return null;
+            }
+
+            try {
+                documentService.recordContentHash(documentId, upload.getSha256());
+            } catch (RuntimeException e) {
+                upload.close();
+                throw e;
+            }
+            return upload;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeFetched(CompletableFuture<DocumentIngestService.IngestedUpload> fetched) {
+        if (fetched.isDone() && !fetched.isCompletedExceptionally() && fetched.join() != null) {
+            fetched.join().close();
+        }
+    }
+
+    private void store(Long documentId, DocumentIngestService.IngestedUpload upload, String contentType) {
+        documentService.updateDocumentStatus(documentId, AuditDocument.ProcessingStatus.PROCESSING);
+        try {
+            ingestService.store(upload, contentType);
+            log.info("Stored document {} at {}", documentId, upload.getS3Key());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void extract(Long documentId, DocumentIngestService.IngestedUpload upload,
+                         String contentType, String fileName) {
+        String text = documentService.extractText(upload.getSpoolFile(), contentType, fileName);
+        documentService.saveExtractedText(documentId, text);
+
+        if (!analyzeOnUpload) {
+            documentService.updateDocumentStatus(documentId, AuditDocument.ProcessingStatus.COMPLETED);
+        }
+    }
+
+    private void analyze(Long documentId) {
+        if (analyzeOnUpload) {
+            // analyzeStoredDocument moves the document to COMPLETED (or FAILED) itself
+            aiAnalysisService.analyzeStoredDocument(documentId);
+        }
+    }
+
+    private void fail(Long documentId, Throwable error) {
+        log.error("Ingestion failed for document {}: {}", documentId, error.getMessage(), error);
+        try {
+            documentService.updateDocumentStatus(documentId, AuditDocument.ProcessingStatus.FAILED);
+        } catch (Exception e) {
+            log.error("Could not mark document {} as FAILED", documentId, e);
+        }
+    }
+}
@@ -1,21 +1,28 @@
 package com.auditiq.service;
 
+import com.auditiq.dto.DocumentSummary;
 import com.auditiq.model.AuditDocument;
+import com.auditiq.model.DocumentContent;
 import com.auditiq.repository.AuditDocumentRepository;
+import com.auditiq.repository.DocumentContentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.*;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
@@ -24,62 +31,149 @@ import java.util.UUID;
 public class DocumentManagementService {
 
     private final AuditDocumentRepository documentRepository;
-    private final S3Client s3Client;
+    private final DocumentContentRepository contentRepository;
+    private final BlobStore blobStore;
+    private final TextExtractorRegistry textExtractorRegistry;
+    private final Optional<DocumentCache> documentCache;
+    private final TransactionTemplate transactionTemplate;
 
-    @Value("${aws.s3.bucket-name}")
-    private String bucketName;
+    /**
+     * Generate a unique S3 key for an uploaded file
+     */
+    public String generateS3Key(String fileName) {
+        String fileExtension = fileName != null && fileName.contains(".")
+                ? fileName.substring(fileName.lastIndexOf("."))
+                : "";
+        return "documents/" + UUID.randomUUID() + fileExtension;
+    }
 
     /**
-     * Upload document to S3 and save metadata to database
+     * Persist the metadata row for a new upload in UPLOADED state
      */
-    public AuditDocument uploadDocument(MultipartFile file, String standard, String uploadedBy) {
-        try {
-            log.info("Uploading document: {} for standard: {}", file.getOriginalFilename(), standard);
-
-            // Generate unique file name
-            String fileName = file.getOriginalFilename();
-            String fileExtension = fileName.substring(fileName.lastIndexOf("."));
-            String s3Key = "documents/" + UUID.randomUUID() + fileExtension;
-
-            // Upload to S3
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(s3Key)
-                    .contentType(file.getContentType())
-                    .build();
-
-            s3Client.putObject(putObjectRequest,
-                    RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
-
-            String s3Url = String.format("https://%s.s3.amazonaws.com/%s", bucketName, s3Key);
-
-            // Extract text from document for analysis - FIXED!
-            String extractedText = extractTextFromFile(file);
-
-            // Create database record
-            AuditDocument document = new AuditDocument();
-            document.setFileName(fileName);
-            document.setFileType(file.getContentType());
-            document.setFileSize(file.getSize());
-            document.setS3Key(s3Key);
-            document.setS3Url(s3Url);
-            document.setStandard(AuditDocument.ComplianceStandard.valueOf(standard.toUpperCase().replace(" ", "_")));
-            document.setStatus(AuditDocument.ProcessingStatus.UPLOADED);
-            document.setUploadedBy(uploadedBy);
-            document.setExtractedText(extractedText);
-            document.setCreatedAt(LocalDateTime.now());
-            document.setUpdatedAt(LocalDateTime.now());
-
-            AuditDocument savedDocument = documentRepository.save(document);
-            log.info("Document uploaded successfully with ID: {}", savedDocument.getId());
-            log.info("Extracted text length: {} characters", extractedText != null ? extractedText.length() : 0);
-
-            return savedDocument;
-
-        } catch (IOException e) {
-            log.error("Error uploading document: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to upload document: " + e.getMessage());
+    public AuditDocument createDocumentRecord(String fileName, String fileType, long fileSize, String contentHash,
+                                              String s3Key, String standard, String uploadedBy) {
+        AuditDocument document = new AuditDocument();
+        document.setFileName(fileName);
+        document.setFileType(fileType);
+        document.setFileSize(fileSize);
+        document.setS3Key(s3Key);
+        document.setS3Url(blobStore.locationOf(s3Key));
+        document.setContentHash(contentHash);
+        document.setStandard(AuditDocument.ComplianceStandard.valueOf(standard.toUpperCase().replace(" ", "_")));
+        document.setStatus(AuditDocument.ProcessingStatus.UPLOADED);
+        document.setUploadedBy(uploadedBy);
+        document.setCreatedAt(LocalDateTime.now());
+        document.setUpdatedAt(LocalDateTime.now());
+
+        AuditDocument savedDocument = documentRepository.save(document);
+        log.info("Document record created with ID: {}", savedDocument.getId());
+        return savedDocument;
+    }
+
+    /**
+     * Find an already processed document with identical content, if any
+     */
+    public Optional<AuditDocument> findProcessedDuplicate(String contentHash) {
+        return documentRepository.findFirstByContentHashAndStatusOrderByIdAsc(
+                contentHash, AuditDocument.ProcessingStatus.COMPLETED);
+    }
+
+    /**
+     * Register an upload whose content is already stored: reuse the existing S3 object
+     * and extracted text instead of storing and extracting again. Empty when no processed
+     * document has this content (any more), in which case the caller stores the upload itself.
+     * <p>
+     * The original row is locked while the new row and its text copy are written, in one
+     * transaction. Deletion locks the same rows, so either the delete waits and then sees the
+     * new row still referencing the key, or this finds the original gone and falls back.
+     */
+    public Optional<AuditDocument> registerDuplicate(String contentHash, String fileName, String fileType,
+                                                     String standard, String uploadedBy) {
+        return transactionTemplate.execute(status -> lockProcessedDuplicate(contentHash).map(existing -> {
+            AuditDocument document = createDocumentRecord(fileName, fileType, existing.getFileSize(),
+                    existing.getContentHash(), existing.getS3Key(), standard, uploadedBy);
+            document.setStatus(AuditDocument.ProcessingStatus.COMPLETED);
+            contentRepository.copyContent(existing.getId(), document.getId());
+            log.info("Document {} deduplicated against document {} (sha256: {})",
+                    document.getId(), existing.getId(), existing.getContentHash());
+            return documentRepository.save(document);
+        }));
+    }
+
+    /**
+     * The oldest processed document with this content, locked for the rest of the transaction
+     */
+    private Optional<AuditDocument> lockProcessedDuplicate(String contentHash) {
+        return findProcessedDuplicate(contentHash)
+                .flatMap(candidate -> documentRepository.findByIdForUpdate(candidate.getId()))
+                .filter(existing -> existing.getStatus() == AuditDocument.ProcessingStatus.COMPLETED);
+    }
+
+    /**
+     * Whether any document row already points at the storage key
+     */
+    public boolean isKeyReferenced(String s3Key) {
+        return documentRepository.countByS3Key(s3Key) > 0;
+    }
+
+    /**
+     * Record the content hash of a document whose bytes were hashed after it was registered
+     */
+    public void recordContentHash(Long id, String contentHash) {
+        AuditDocument document = getDocumentById(id);
+        document.setContentHash(contentHash);
+        document.setUpdatedAt(LocalDateTime.now());
+        documentRepository.save(document);
+    }
+
+    /**
+     * A registered document may duplicate an already processed one: if so, point it at the
+     * existing object and text (under the same row lock as registerDuplicate) and, once that
+     * has committed, drop its own copy of the bytes. Returns false when there is no duplicate.
+     */
+    public boolean adoptDuplicate(Long id, String contentHash) throws IOException {
+        String ownKey = getDocumentById(id).getS3Key();
+        Optional<AuditDocument> adopted = transactionTemplate.execute(status ->
+                lockProcessedDuplicate(contentHash).map(existing -> {
+                    AuditDocument document = getDocumentById(id);
+                    document.setS3Key(existing.getS3Key());
+                    document.setS3Url(existing.getS3Url());
+                    document.setContentHash(existing.getContentHash());
+                    document.setStatus(AuditDocument.ProcessingStatus.COMPLETED);
+                    document.setUpdatedAt(LocalDateTime.now());
+                    documentRepository.save(document);
+                    contentRepository.copyContent(existing.getId(), id);
+                    log.info("Document {} deduplicated against document {} (sha256: {})",
+                            id, existing.getId(), existing.getContentHash());
+                    return existing;
+                }));
+        if (adopted.isEmpty()) {
+            return false;
         }
+
+        if (!ownKey.equals(adopted.get().getS3Key()) && documentRepository.countByS3Key(ownKey) == 0) {
+            blobStore.delete(ownKey);
+        }
+        return true;
+    }
+
+    /**
+     * Store extracted text on an existing document
+     */
+    public void saveExtractedText(Long id, String extractedText) {
+        DocumentContent content = contentRepository.findById(id).orElseGet(DocumentContent::new);
+        content.setDocumentId(id);
+        content.setExtractedText(extractedText);
+        content.setUpdatedAt(LocalDateTime.now());
+        contentRepository.save(content);
+        log.info("Extracted text length: {} characters", extractedText != null ? extractedText.length() : 0);
+    }
+
+    /**
+     * Load the extracted text of a document from the content store (null if none was extracted)
+     */
+    public String getExtractedText(Long id) {
+        return contentRepository.findTextByDocumentId(id).orElse(null);
     }
 
     /**
@@ -93,47 +187,86 @@ public class DocumentManagementService {
     /**
      * Get all documents
      */
-    public List<AuditDocument> getAllDocuments() {
-        return documentRepository.findAll();
+    public List<DocumentSummary> getAllDocuments() {
+        return documentRepository.findSummariesBy();
     }
 
     /**
      * Get documents by standard
      */
-    public List<AuditDocument> getDocumentsByStandard(String standard) {
+    public List<DocumentSummary> getDocumentsByStandard(String standard) {
         AuditDocument.ComplianceStandard complianceStandard = AuditDocument.ComplianceStandard
                 .valueOf(standard.toUpperCase().replace(" ", "_"));
-        return documentRepository.findByStandard(complianceStandard);
+        return documentRepository.findSummariesByStandard(complianceStandard);
     }
 
     /**
      * Get documents by status
      */
-    public List<AuditDocument> getDocumentsByStatus(String status) {
+    public List<DocumentSummary> getDocumentsByStatus(String status) {
         AuditDocument.ProcessingStatus processingStatus = AuditDocument.ProcessingStatus.valueOf(status.toUpperCase());
-        return documentRepository.findByStatus(processingStatus);
+        return documentRepository.findSummariesByStatus(processingStatus);
     }
 
     /**
      * Get recent documents (last 10)
      */
-    public List<AuditDocument> getRecentDocuments() {
-        return documentRepository.findTop10ByOrderByCreatedAtDesc();
+    public List<DocumentSummary> getRecentDocuments() {
+        return documentRepository.findTop10SummariesByOrderByCreatedAtDesc();
     }
 
     /**
-     * Download document from S3
+     * Open the stored object for streaming, optionally limited to the inclusive byte range
+     * [start, end]. The caller must close the returned stream.
+     */
+    public InputStream openDocumentStream(AuditDocument document, Long start, Long end) throws IOException {
+        return start != null
+                ? blobStore.open(document.getS3Key(), start, end)
+                : blobStore.open(document.getS3Key());
+    }
+
+    /**
+     * The node-local cached copy of the stored object, opened, if the disk cache is enabled and
+     * holds it; serveCachedCopy closes it. A miss starts filling the cache in the background;
+     * lookup failures just mean a miss.
+     */
+    public Optional<FileChannel> cachedCopy(AuditDocument document) {
+        if (documentCache.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return documentCache.get().lookup(document.getS3Key());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Document cache lookup failed for {}: {}", document.getS3Key(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Write [start, start + length) of a cached copy to the output and close it
+     */
+    public void serveCachedCopy(FileChannel cached, long start, long length, OutputStream out) throws IOException {
+        documentCache.orElseThrow().serve(cached, start, length, out);
+    }
+
+    /**
+     * Download document into memory (small documents only - prefer openDocumentStream).
+     * Goes through the disk cache when it is enabled, so repeated reads skip storage.
      */
     public byte[] downloadDocument(Long id) {
         try {
             AuditDocument document = getDocumentById(id);
 
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(document.getS3Key())
-                    .build();
-
-            byte[] fileContent = s3Client.getObjectAsBytes(getObjectRequest).asByteArray();
+            byte[] fileContent;
+            if (documentCache.isPresent()) {
+                try (InputStream in = Channels.newInputStream(documentCache.get().fetch(document.getS3Key()))) {
+                    fileContent = in.readAllBytes();
+                }
+            } else {
+                try (InputStream in = blobStore.open(document.getS3Key())) {
+                    fileContent = in.readAllBytes();
+                }
+            }
             log.info("Document downloaded successfully: {}", document.getFileName());
 
             return fileContent;
@@ -145,42 +278,33 @@ public class DocumentManagementService {
     }
 
     /**
-     * Delete document from S3 and database - ENHANCED ERROR HANDLING
+     * Delete the document and content rows of the given ids in one transaction, returning
+     * the documents that existed. Stored objects are left to the caller, to be removed
+     * only after the rows are gone for good.
      */
-    public void deleteDocument(Long id) {
-        AuditDocument document = null;
-        try {
-            log.info("🗑️ Attempting to delete document with ID: {}", id);
-            
-            // Get document first
-            document = getDocumentById(id);
-            log.info("📄 Found document: {} (S3 Key: {})", document.getFileName(), document.getS3Key());
-
-            // Delete from S3
-            try {
-                DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
-                        .bucket(bucketName)
-                        .key(document.getS3Key())
-                        .build();
-
-                s3Client.deleteObject(deleteObjectRequest);
-                log.info("✅ Deleted from S3: {}", document.getS3Key());
-            } catch (Exception s3Error) {
-                log.warn("⚠️ S3 deletion failed (continuing anyway): {}", s3Error.getMessage());
-                // Continue to delete from database even if S3 fails
-            }
-
-            // Delete from database
-            documentRepository.deleteById(id);
-            log.info("✅ Document deleted successfully from database: {}", document.getFileName());
+    @Transactional
+    public List<AuditDocument> deleteDocumentRecords(Collection<Long> ids) {
+        // Locked so a concurrent registerDuplicate against one of these rows either finishes
+        // first (and keeps the key referenced) or finds the row gone
+        List<AuditDocument> documents = documentRepository.findAllByIdForUpdate(ids);
+        List<Long> foundIds = documents.stream().map(AuditDocument::getId).toList();
+        if (!foundIds.isEmpty()) {
+            contentRepository.deleteAllByIdInBatch(foundIds);
+            documentRepository.deleteAllByIdInBatch(foundIds);
+        }
+        log.info("Deleted {} of {} requested document rows", foundIds.size(), ids.size());
+        return documents;
+    }
 
-        } catch (Exception e) {
-            log.error("❌ Error deleting document ID {}: {}", id, e.getMessage(), e);
-            if (document != null) {
-                log.error("Document details - Name: {}, S3 Key: {}", document.getFileName(), document.getS3Key());
-            }
-            throw new RuntimeException("Failed to delete document: " + e.getMessage());
+    /**
+     * The storage keys no document references any more (deduplicated uploads share one object)
+     */
+    public Set<String> unreferencedKeys(Collection<String> keys) {
+        Set<String> unreferenced = new HashSet<>(keys);
+        if (!unreferenced.isEmpty()) {
+            documentRepository.findReferencedS3Keys(unreferenced).forEach(unreferenced::remove);
         }
+        return unreferenced;
     }
 
     /**
@@ -194,72 +318,23 @@ public class DocumentManagementService {
     }
 
     /**
-     * Extract text from uploaded file - FIXED TO USE APACHE PDFBOX!
+     * Extract text from the spooled upload with the first TextExtractor that supports its type
      */
-    private String extractTextFromFile(MultipartFile file) {
-        try {
-            String fileType = file.getContentType();
-            log.info("Extracting text from file type: {}", fileType);
-
-            // Handle PDF files with Apache PDFBox
-            if ("application/pdf".equalsIgnoreCase(fileType) || 
-                file.getOriginalFilename().toLowerCase().endsWith(".pdf")) {
-                
-                return extractTextFromPDF(file);
-            }
-            
-            // Handle text files
-            if (fileType != null && fileType.startsWith("text/")) {
-                byte[] bytes = file.getBytes();
-                String text = new String(bytes, "UTF-8");
-                log.info("Extracted {} characters from text file", text.length());
-                return text;
-            }
-            
-            // For other file types, return empty string
+    public String extractText(Path file, String fileType, String fileName) {
+        Optional<TextExtractor> extractor = textExtractorRegistry.find(fileType, fileName);
+        if (extractor.isEmpty()) {
             log.warn("Unsupported file type for text extraction: {}", fileType);
             return "Text extraction not supported for file type: " + fileType;
+        }
+
+        try {
+            log.info("Extracting text from {} ({}) with {}", fileName, fileType,
+                    extractor.get().getClass().getSimpleName());
+            return extractor.get().extractText(file);
 
         } catch (Exception e) {
             log.error("Could not extract text from file: {}", e.getMessage(), e);
             return "Error extracting text: " + e.getMessage();
         }
     }
-
-    /**
-     * Extract text from PDF using Apache PDFBox
-     */
-    private String extractTextFromPDF(MultipartFile file) {
-        PDDocument document = null;
-        try {
-            log.info("Loading PDF document: {}", file.getOriginalFilename());
-            
-            // Load PDF document
-            document = org.apache.pdfbox.Loader.loadPDF(file.getBytes());
-            
-            // Create PDF text stripper
-            PDFTextStripper stripper = new PDFTextStripper();
-            
-            // Extract text from all pages
-            String text = stripper.getText(document);
-            
-            log.info("✅ Successfully extracted {} characters from PDF ({} pages)", 
-                    text.length(), document.getNumberOfPages());
-            
-            return text;
-
-        } catch (IOException e) {
-            log.error("❌ Error extracting text from PDF: {}", e.getMessage(), e);
-            return "Error extracting PDF text: " + e.getMessage();
-        } finally {
-            // Always close the document
-            if (document != null) {
-                try {
-                    document.close();
-                } catch (IOException e) {
-                    log.warn("Error closing PDF document: {}", e.getMessage());
-                }
-            }
-        }
-    }
-}
\ No newline at end of file
+}
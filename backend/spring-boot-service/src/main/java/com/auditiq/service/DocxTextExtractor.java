@@ -0,0 +1,47 @@
+package com.auditiq.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Word (.docx) text via a SAX pass over word/document.xml - XWPFDocument is never built
+ */
+@Slf4j
+@Service
+public class DocxTextExtractor implements TextExtractor {
+
+    private static final String CONTENT_TYPE =
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+
+    @Override
+    public boolean supports(String contentType, String fileName) {
+        return TextExtractor.matches(contentType, fileName, CONTENT_TYPE, ".docx");
+    }
+
+    @Override
+    public String extractText(Path file) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            PackageRelationship documentRel = pkg
+                    .getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT)
+                    .getRelationship(0);
+            PackagePart document = pkg.getPart(documentRel);
+
+            StringBuilder text = new StringBuilder();
+            OoxmlTextHandler.parse(document, OoxmlTextHandler.WORDPROCESSING_NS, text);
+            log.info("Extracted {} characters from Word document", text.length());
+            return text.toString();
+
+        } catch (InvalidFormatException e) {
+            throw new IOException("Not a valid Word document: " + e.getMessage(), e);
+        }
+    }
+}
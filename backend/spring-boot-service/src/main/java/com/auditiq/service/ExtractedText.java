@@ -0,0 +1,23 @@
+package com.auditiq.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Text pulled out of a document, and how many pages it came from
+ */
+@Getter
+@AllArgsConstructor
+public class ExtractedText {
+    private final String text;
+    private final int pageCount;
+
+    /**
+     * Join per-page text in page order
+     */
+    public static ExtractedText fromPages(List<String> pages) {
+        return new ExtractedText(String.join("", pages), pages.size());
+    }
+}
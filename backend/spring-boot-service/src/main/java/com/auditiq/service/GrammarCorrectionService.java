@@ -2,8 +2,8 @@ package com.auditiq.service;
 
 import com.auditiq.dto.GrammarCorrectionRequest;
 import com.auditiq.dto.GrammarCorrectionResponse;
-import com.auditiq.model.AuditDocument;
 import com.auditiq.repository.AuditDocumentRepository;
+import com.auditiq.repository.DocumentContentRepository;
 import com.auditiq.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +20,7 @@ public class GrammarCorrectionService {
 
     private final PythonMLClient pythonMLClient;
     private final AuditDocumentRepository documentRepository;
+    private final DocumentContentRepository contentRepository;
 
     @Cacheable(value = "grammarCorrections", key = "#text.hashCode()")
     public GrammarCorrectionResponse correctText(String text) {
@@ -36,10 +37,11 @@ public class GrammarCorrectionService {
     }
 
     public GrammarCorrectionResponse correctDocumentGrammar(Long documentId) {
-        AuditDocument document = documentRepository.findById(documentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + documentId));
-        
-        return correctText(document.getExtractedText());
+        if (!documentRepository.existsById(documentId)) {
+            throw new ResourceNotFoundException("Document not found with id: " + documentId);
+        }
+
+        return correctText(contentRepository.findTextByDocumentId(documentId).orElse(null));
     }
 
     public GrammarCorrectionResponse correctTextWithLanguage(String text, String language) {
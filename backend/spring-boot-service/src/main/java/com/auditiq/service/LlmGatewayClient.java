@@ -0,0 +1,496 @@
+package com.auditiq.service;
+
+import com.auditiq.exception.LlmGatewayException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * HTTP client for LLM provider APIs (the Anthropic Messages API today).
+ * One shared JDK HttpClient negotiates HTTP/2, so concurrent calls are multiplexed over a
+ * few pooled connections. Each endpoint gets a concurrency limit and two adaptive token
+ * buckets (requests and input tokens per minute) that follow the anthropic-ratelimit-*
+ * response headers. 429, 529 and 5xx responses, I/O failures and timeouts waiting for a
+ * concurrency slot are retried with full-jitter exponential backoff, or after retry-after when the server sends one. Streaming (SSE)
+ * responses are relayed event by event and are only retried before the first byte.
+ */
+@Slf4j
+@Service
+public class LlmGatewayClient {
+
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(408, 429, 500, 502, 503, 504, 529);
+
+    // Rough English-text ratio, good enough to meter input tokens before the server counts them
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final HttpClient httpClient;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    @Value("${llm.gateway.max-concurrency:16}")
+    private int maxConcurrency;
+
+    @Value("${llm.gateway.acquire-timeout-seconds:60}")
+    private long acquireTimeoutSeconds;
+
+    @Value("${llm.gateway.request-timeout-seconds:180}")
+    private long requestTimeoutSeconds;
+
+    @Value("${llm.gateway.requests-per-minute:50}")
+    private long requestsPerMinute;
+
+    @Value("${llm.gateway.input-tokens-per-minute:40000}")
+    private long inputTokensPerMinute;
+
+    @Value("${llm.gateway.max-retries:4}")
+    private int maxRetries;
+
+    @Value("${llm.gateway.backoff-base-ms:500}")
+    private long backoffBaseMs;
+
+    @Value("${llm.gateway.backoff-max-ms:30000}")
+    private long backoffMaxMs;
+
+    public LlmGatewayClient(ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${llm.gateway.connect-timeout-seconds:10}") long connectTimeoutSeconds) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * POST a JSON body and return the parsed JSON response, waiting for a concurrency slot
+     * and rate-limit budget first and retrying transient failures
+     */
+    public JsonNode postJson(String url, Map<String, String> headers, Object body) {
+        return execute(url, headers, body, HttpResponse.BodyHandlers.ofString(), Function.identity(),
+                (endpoint, response, started) -> parse(endpoint, response.body(), System.nanoTime() - started));
+    }
+
+    /**
+     * POST a streaming request (the body must ask for "stream": true) and hand the JSON data of
+     * every server-sent event to the consumer as it arrives. Failures are retried only until
+     * the response starts; the concurrency slot is held until the stream ends. An exception
+     * thrown by the consumer (e.g. the client went away) closes the upstream connection.
+     */
+    public void streamJson(String url, Map<String, String> headers, Object body, Consumer<JsonNode> onEvent) {
+        execute(url, headers, body, HttpResponse.BodyHandlers.ofLines(),
+                lines -> {
+                    try (lines) {
+                        return lines.collect(Collectors.joining("\n"));
+                    }
+                },
+                (endpoint, response, started) -> {
+                    relayEvents(endpoint, response.body(), started, onEvent);
+                    return null;
+                });
+    }
+
+    private <T, R> R execute(String url, Map<String, String> headers, Object body,
+                             HttpResponse.BodyHandler<T> bodyHandler, Function<T, String> errorBody,
+                             SuccessHandler<T, R> onSuccess) {
+        URI uri = URI.create(url);
+        Endpoint endpoint = endpoints.computeIfAbsent(uri.getHost() + uri.getPath(), this::newEndpoint);
+
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new LlmGatewayException("Could not serialize LLM request", e);
+        }
+        long estimatedTokens = Math.max(1, payload.length / CHARS_PER_TOKEN);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(requestTimeoutSeconds))
+                .header("content-type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload));
+        headers.forEach(request::header);
+
+        for (int attempt = 0; ; attempt++) {
+            Outcome<R> outcome;
+            try {
+                outcome = sendThrottled(endpoint, request.build(), estimatedTokens, bodyHandler, errorBody, onSuccess);
+            } catch (SlotTimeoutException e) {
+                if (attempt >= maxRetries) {
+                    throw new LlmGatewayException("Timed out waiting for an LLM request slot", 0);
+                }
+                endpoint.retries("slot_timeout").increment();
+                backoff(endpoint, attempt, null, "no free request slot");
+                continue;
+            } catch (IOException e) {
+                if (attempt >= maxRetries) {
+                    throw new LlmGatewayException("LLM request failed after " + (attempt + 1) + " attempts: "
+                            + e.getMessage(), e);
+                }
+                endpoint.retries("io").increment();
+                backoff(endpoint, attempt, null, e.getMessage());
+                continue;
+            }
+            if (outcome.succeeded()) {
+                return outcome.result();
+            }
+
+            int status = outcome.status();
+            boolean retryable = RETRYABLE_STATUSES.contains(status)
+                    && !"false".equalsIgnoreCase(outcome.headers().firstValue("x-should-retry").orElse(null));
+            if (!retryable || attempt >= maxRetries) {
+                throw new LlmGatewayException("LLM request failed with HTTP " + status + ": "
+                        + abbreviate(outcome.errorBody()), status);
+            }
+            endpoint.retries(String.valueOf(status)).increment();
+            Duration retryAfter = retryAfter(outcome.headers()).orElse(null);
+            if (retryAfter != null && (status == 429 || status == 529)) {
+                // Everyone on this endpoint should hold off, not just this caller
+                endpoint.requests.pauseFor(retryAfter);
+                endpoint.inputTokens.pauseFor(retryAfter);
+            }
+            backoff(endpoint, attempt, retryAfter, "HTTP " + status);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SuccessHandler<T, R> {
+        R handle(Endpoint endpoint, HttpResponse<T> response, long startedNanos) throws IOException;
+    }
+
+    private record Outcome<R>(boolean succeeded, R result, int status, HttpHeaders headers, String errorBody) {
+    }
+
+    /**
+     * Run one attempt inside a concurrency slot. Rate-limit budget is taken before the slot, so
+     * callers waiting out a retry-after pause do not sit on slots others could use. I/O errors
+     * before a response arrives and slot timeouts are thrown for the retry loop; errors while
+     * handling a successful response are not retryable.
+     */
+    private <T, R> Outcome<R> sendThrottled(Endpoint endpoint, HttpRequest request, long estimatedTokens,
+                                            HttpResponse.BodyHandler<T> bodyHandler, Function<T, String> errorBody,
+                                            SuccessHandler<T, R> onSuccess) throws IOException, SlotTimeoutException {
+        long queued = System.nanoTime();
+        try {
+            endpoint.requests.acquire(1);
+            endpoint.inputTokens.acquire(estimatedTokens);
+            if (!endpoint.slots.tryAcquire(acquireTimeoutSeconds, TimeUnit.SECONDS)) {
+                throw new SlotTimeoutException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmGatewayException("Interrupted waiting for an LLM request slot", e);
+        }
+
+        try {
+            endpoint.queueWait.record(System.nanoTime() - queued, TimeUnit.NANOSECONDS);
+
+            endpoint.inFlight.incrementAndGet();
+            long started = System.nanoTime();
+            try {
+                HttpResponse<T> response = httpClient.send(request, bodyHandler);
+                observeRateLimits(endpoint, response.headers());
+                int status = response.statusCode();
+                if (status < 200 || status >= 300) {
+                    String error = errorBody.apply(response.body());
+                    endpoint.latency(status).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                    return new Outcome<>(false, null, status, response.headers(), error);
+                }
+
+                R result;
+                try {
+                    result = onSuccess.handle(endpoint, response, started);
+                } catch (IOException e) {
+                    throw new LlmGatewayException("LLM response failed mid-stream: " + e.getMessage(), e);
+                }
+                endpoint.latency(status).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                return new Outcome<>(true, result, status, response.headers(), null);
+            } finally {
+                endpoint.inFlight.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmGatewayException("Interrupted during LLM request", e);
+        } finally {
+            endpoint.slots.release();
+        }
+    }
+
+    /**
+     * No concurrency slot freed up within llm.gateway.acquire-timeout-seconds
+     */
+    private static class SlotTimeoutException extends Exception {
+        SlotTimeoutException() {
+            super("Timed out waiting for an LLM request slot", null, false, false);
+        }
+    }
+
+    private JsonNode parse(Endpoint endpoint, String body, long elapsedNanos) {
+        JsonNode json;
+        try {
+            json = objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new LlmGatewayException("LLM response is not valid JSON", e);
+        }
+
+        JsonNode usage = json.path("usage");
+        recordUsage(endpoint, usage, usage.path("output_tokens").asLong(0), elapsedNanos);
+        return json;
+    }
+
+    /**
+     * Parse the SSE stream (event/data lines, blank line between events) and pass each data
+     * payload on. Usage arrives in message_start (input) and message_delta (output) events.
+     */
+    private void relayEvents(Endpoint endpoint, Stream<String> lines, long started, Consumer<JsonNode> onEvent)
+            throws IOException {
+        JsonNode inputUsage = objectMapper.missingNode();
+        long outputTokens = 0;
+        boolean firstToken = true;
+
+        try (lines) {
+            Iterator<String> it = lines.iterator();
+            while (it.hasNext()) {
+                String line = it.next();
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                JsonNode event = objectMapper.readTree(line.substring(5).trim());
+                String type = event.path("type").asText();
+
+                switch (type) {
+                    case "message_start" -> inputUsage = event.path("message").path("usage");
+                    case "message_delta" -> outputTokens = event.path("usage")
+                            .path("output_tokens").asLong(outputTokens);
+                    case "content_block_delta" -> {
+                        if (firstToken) {
+                            endpoint.timeToFirstToken.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                            firstToken = false;
+                        }
+                    }
+                    case "error" -> throw new LlmGatewayException("LLM stream failed: "
+                            + event.path("error").path("message").asText(type), 0);
+                    default -> {
+                    }
+                }
+                onEvent.accept(event);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        recordUsage(endpoint, inputUsage, outputTokens, System.nanoTime() - started);
+    }
+
+    /**
+     * Count the input side from a usage object (input_tokens excludes prompt-cache reads and
+     * writes, which are reported separately) and the output tokens of the generation
+     */
+    private void recordUsage(Endpoint endpoint, JsonNode usage, long outputTokens, long elapsedNanos) {
+        long cacheRead = usage.path("cache_read_input_tokens").asLong(0);
+        long cacheWrite = usage.path("cache_creation_input_tokens").asLong(0);
+        endpoint.tokens("input").increment(usage.path("input_tokens").asLong(0));
+        endpoint.tokens("cache_read").increment(cacheRead);
+        endpoint.tokens("cache_write").increment(cacheWrite);
+        endpoint.tokens("output").increment(outputTokens);
+        if (cacheRead > 0) {
+            endpoint.promptCacheHits.increment();
+        } else if (cacheWrite > 0) {
+            endpoint.promptCacheMisses.increment();
+        }
+        if (outputTokens > 0 && elapsedNanos > 0) {
+            endpoint.tokensPerSecond.record(outputTokens / (elapsedNanos / 1_000_000_000.0));
+        }
+    }
+
+    private void observeRateLimits(Endpoint endpoint, HttpHeaders headers) {
+        endpoint.requests.update(
+                longHeader(headers, "anthropic-ratelimit-requests-limit"),
+                longHeader(headers, "anthropic-ratelimit-requests-remaining"),
+                instantHeader(headers, "anthropic-ratelimit-requests-reset"));
+
+        // Newer API versions split input/output token limits; older ones send a combined one
+        String prefix = headers.firstValue("anthropic-ratelimit-input-tokens-limit").isPresent()
+                ? "anthropic-ratelimit-input-tokens"
+                : "anthropic-ratelimit-tokens";
+        endpoint.inputTokens.update(
+                longHeader(headers, prefix + "-limit"),
+                longHeader(headers, prefix + "-remaining"),
+                instantHeader(headers, prefix + "-reset"));
+    }
+
+    private void backoff(Endpoint endpoint, int attempt, Duration retryAfter, String reason) {
+        long delayMs;
+        if (retryAfter != null) {
+            // Small jitter so callers released by the same retry-after do not stampede
+            delayMs = retryAfter.toMillis() + ThreadLocalRandom.current().nextLong(backoffBaseMs + 1);
+        } else {
+            long ceiling = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt, 20));
+            delayMs = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        }
+        log.warn("LLM request to {} failed ({}), retry {} of {} in {} ms",
+                endpoint.name, reason, attempt + 1, maxRetries, delayMs);
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmGatewayException("Interrupted while backing off", e);
+        }
+    }
+
+    private static Optional<Duration> retryAfter(HttpHeaders headers) {
+        return headers.firstValue("retry-after").flatMap(value -> {
+            try {
+                return Optional.of(Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1000)));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    private static Long longHeader(HttpHeaders headers, String name) {
+        return headers.firstValue(name).map(value -> {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }).orElse(null);
+    }
+
+    private static Instant instantHeader(HttpHeaders headers, String name) {
+        return headers.firstValue(name).map(value -> {
+            try {
+                return Instant.parse(value.trim());
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }).orElse(null);
+    }
+
+    private static String abbreviate(String body) {
+        if (body == null) {
+            return "";
+        }
+        return body.length() <= 500 ? body : body.substring(0, 500) + "...";
+    }
+
+    private Endpoint newEndpoint(String name) {
+        return new Endpoint(name, maxConcurrency, requestsPerMinute, inputTokensPerMinute, meterRegistry);
+    }
+
+    /**
+     * Limits and meters for one host + path
+     */
+    private static class Endpoint {
+
+        final String name;
+        final Semaphore slots;
+        final AdaptiveTokenBucket requests;
+        final AdaptiveTokenBucket inputTokens;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final Timer queueWait;
+        final DistributionSummary tokensPerSecond;
+        final Timer timeToFirstToken;
+        final Counter promptCacheHits;
+        final Counter promptCacheMisses;
+        private final MeterRegistry registry;
+
+        Endpoint(String name, int maxConcurrency, long requestsPerMinute, long inputTokensPerMinute,
+                 MeterRegistry registry) {
+            this.name = name;
+            this.registry = registry;
+            this.slots = new Semaphore(maxConcurrency, true);
+            this.requests = new AdaptiveTokenBucket(requestsPerMinute);
+            this.inputTokens = new AdaptiveTokenBucket(inputTokensPerMinute);
+
+            Gauge.builder("auditiq.llm.requests.inflight", inFlight, AtomicInteger::get)
+                    .description("LLM requests currently on the wire")
+                    .tag("endpoint", name)
+                    .register(registry);
+            Gauge.builder("auditiq.llm.ratelimit.requests.available", requests, AdaptiveTokenBucket::available)
+                    .tag("endpoint", name)
+                    .register(registry);
+            Gauge.builder("auditiq.llm.ratelimit.tokens.available", inputTokens, AdaptiveTokenBucket::available)
+                    .tag("endpoint", name)
+                    .register(registry);
+            this.queueWait = Timer.builder("auditiq.llm.queue.wait")
+                    .description("Time spent waiting for a concurrency slot and rate-limit budget")
+                    .tag("endpoint", name)
+                    .register(registry);
+            this.tokensPerSecond = DistributionSummary.builder("auditiq.llm.tokens.per.second")
+                    .description("Output tokens per second of individual generations")
+                    .tag("endpoint", name)
+                    .register(registry);
+            this.timeToFirstToken = Timer.builder("auditiq.llm.time.to.first.token")
+                    .description("Time from sending a streaming request to its first content delta")
+                    .tag("endpoint", name)
+                    .register(registry);
+            this.promptCacheHits = Counter.builder("auditiq.llm.prompt.cache")
+                    .description("Requests with a cache-controlled prefix, by whether it was read or written")
+                    .tag("endpoint", name)
+                    .tag("result", "hit")
+                    .register(registry);
+            this.promptCacheMisses = Counter.builder("auditiq.llm.prompt.cache")
+                    .description("Requests with a cache-controlled prefix, by whether it was read or written")
+                    .tag("endpoint", name)
+                    .tag("result", "miss")
+                    .register(registry);
+        }
+
+        Timer latency(int status) {
+            return Timer.builder("auditiq.llm.request")
+                    .description("LLM request latency per attempt")
+                    .tag("endpoint", name)
+                    .tag("status", String.valueOf(status))
+                    .register(registry);
+        }
+
+        Counter retries(String reason) {
+            return Counter.builder("auditiq.llm.retries")
+                    .tag("endpoint", name)
+                    .tag("reason", reason)
+                    .register(registry);
+        }
+
+        Counter tokens(String type) {
+            return Counter.builder("auditiq.llm.tokens")
+                    .description("Tokens consumed, by type")
+                    .baseUnit("tokens")
+                    .tag("endpoint", name)
+                    .tag("type", type)
+                    .register(registry);
+        }
+    }
+}
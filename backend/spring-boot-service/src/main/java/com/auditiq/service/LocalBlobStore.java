@@ -0,0 +1,253 @@
+package com.auditiq.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * BlobStore on the local filesystem, for on-prem installs and load tests without AWS.
+ * Keys map to files under storage.local.root-dir. Writes go to a temp file that is
+ * atomically renamed into place on close; reads are served from memory-mapped windows
+ * of the file, so large blobs are paged in by the OS instead of copied through the heap.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalBlobStore implements BlobStore {
+
+    private static final int LIST_PAGE_SIZE = 1000;
+
+    @Value("${storage.local.root-dir:${java.io.tmpdir}/auditiq-blobs}")
+    private String rootDir;
+
+    @Value("${storage.local.map-window-mb:64}")
+    private int mapWindowMb;
+
+    private Path root;
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Path.of(rootDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        log.info("Local blob store at {}", root);
+    }
+
+    @Override
+    public BlobOutputStream create(String key, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        return new LocalOutputStream(target, temp);
+    }
+
+    @Override
+    public void put(String key, Path file, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path file = resolve(key);
+        return new MappedInputStream(FileChannel.open(file, StandardOpenOption.READ), 0, Files.size(file));
+    }
+
+    @Override
+    public InputStream open(String key, long start, long end) throws IOException {
+        Path file = resolve(key);
+        long size = Files.size(file);
+        return new MappedInputStream(FileChannel.open(file, StandardOpenOption.READ), start, Math.min(end + 1, size));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        try {
+            return Files.isRegularFile(resolve(key));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String etag(String key) throws IOException {
+        Path file = resolve(key);
+        return Files.size(file) + "-" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+        log.info("Deleted local blob: {}", key);
+    }
+
+    @Override
+    public void list(String prefix, Consumer<List<BlobInfo>> pageConsumer) throws IOException {
+        Path start = resolve(prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix);
+        if (!Files.isDirectory(start)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(start)) {
+            Iterator<Path> it = files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().startsWith(".upload-"))
+                    .iterator();
+            List<BlobInfo> page = new ArrayList<>(LIST_PAGE_SIZE);
+            while (it.hasNext()) {
+                Path file = it.next();
+                String key = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                page.add(new BlobInfo(key, Files.size(file), Files.getLastModifiedTime(file).toInstant()));
+                if (page.size() == LIST_PAGE_SIZE) {
+                    pageConsumer.accept(page);
+                    page = new ArrayList<>(LIST_PAGE_SIZE);
+                }
+            }
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+            }
+        }
+    }
+
+    @Override
+    public String locationOf(String key) {
+        return root.resolve(key).toUri().toString();
+    }
+
+    private Path resolve(String key) throws IOException {
+        Path file = root.resolve(key).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw new NoSuchFileException(key, null, "Key escapes the blob store root");
+        }
+        return file;
+    }
+
+    /**
+     * Writes to a temp file next to the target; close() moves it into place
+     */
+    private static class LocalOutputStream extends BlobOutputStream {
+
+        private final Path target;
+        private final Path temp;
+        private final OutputStream out;
+        private boolean closed;
+
+        LocalOutputStream(Path target, Path temp) throws IOException {
+            this.target = target;
+            this.temp = temp;
+            this.out = Files.newOutputStream(temp);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        @Override
+        public void abort() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.warn("Could not discard temp blob {}: {}", temp, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads [position, limit) of a file through successive read-only mappings of at most one window each
+     */
+    private class MappedInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long limit;
+        private long position;
+        private MappedByteBuffer window;
+
+        MappedInputStream(FileChannel channel, long start, long limit) {
+            this.channel = channel;
+            this.position = start;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureWindow()) {
+                return -1;
+            }
+            return window.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureWindow()) {
+                return -1;
+            }
+            int n = Math.min(len, window.remaining());
+            window.get(b, off, n);
+            return n;
+        }
+
+        private boolean ensureWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            if (position >= limit) {
+                return false;
+            }
+            long length = Math.min(limit - position, (long) mapWindowMb * 1024 * 1024);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.auditiq.service;
+
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.XMLHelper;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * SAX handler that copies the text runs of a WordprocessingML or DrawingML part.
+ * Only characters inside {@code <t>} elements of the given namespace are kept; paragraphs
+ * end with a newline, and {@code <tab>} becomes a tab only inside a run ({@code <r>}), not
+ * where it defines a tab stop in paragraph properties. The part is streamed, so memory does not grow with its size.
+ */
+class OoxmlTextHandler extends DefaultHandler {
+
+    static final String WORDPROCESSING_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    static final String DRAWING_NS = "http://schemas.openxmlformats.org/drawingml/2006/main";
+
+    private final String namespace;
+    private final StringBuilder out;
+    private boolean inText;
+    private boolean inRun;
+
+    OoxmlTextHandler(String namespace, StringBuilder out) {
+        this.namespace = namespace;
+        this.out = out;
+    }
+
+    /**
+     * Stream one package part through a fresh handler, appending its text to out
+     */
+    static void parse(PackagePart part, String namespace, StringBuilder out) throws IOException {
+        try (InputStream in = part.getInputStream()) {
+            XMLReader reader = XMLHelper.newXMLReader();
+            reader.setContentHandler(new OoxmlTextHandler(namespace, out));
+            reader.parse(new InputSource(in));
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("Could not parse " + part.getPartName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        if (!namespace.equals(uri)) {
+            return;
+        }
+        switch (localName) {
+            case "t" -> inText = true;
+            case "r" -> inRun = true;
+            case "tab" -> {
+                if (inRun) {
+                    out.append('\t');
+                }
+            }
+            case "br", "cr" -> out.append('\n');
+            default -> { }
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        if (!namespace.equals(uri)) {
+            return;
+        }
+        if ("t".equals(localName)) {
+            inText = false;
+        } else if ("r".equals(localName)) {
+            inRun = false;
+        } else if ("p".equals(localName)) {
+            out.append('\n');
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (inText) {
+            out.append(ch, start, length);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.auditiq.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Page-parallel PDF text extraction.
+ * Large documents are split into page ranges that are stripped concurrently on a
+ * dedicated fork-join pool. PDDocument is not thread-safe, so every leaf task opens
+ * its own handle on the file; results are reassembled in page order.
+ *
+ * Memory is bounded in two ways: PDFs are opened from the spooled file with PDFBox's
+ * scratch-file stream cache (only a small main-memory budget per handle, the rest
+ * spills to temp files), and an admission semaphore caps how many documents are
+ * extracted at once. Waiting callers queue on the semaphore.
+ */
+@Slf4j
+@Service
+public class PdfTextExtractor implements TextExtractor {
+
+    @Value("${documents.extraction.pages-per-task:16}")
+    private int pagesPerTask;
+
+    @Value("${documents.extraction.parallelism:0}")
+    private int parallelism;
+
+    @Value("${documents.extraction.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${documents.extraction.memory-mode:MIXED}")
+    private MemoryMode memoryMode;
+
+    @Value("${documents.extraction.max-main-memory-mb:16}")
+    private long maxMainMemoryMb;
+
+    @Value("${documents.extraction.scratch-dir:${java.io.tmpdir}}")
+    private String scratchDir;
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger openHandles = new AtomicInteger();
+
+    private ForkJoinPool pool;
+    private Semaphore admission;
+
+    public PdfTextExtractor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * How PDFBox buffers parsed streams: MIXED keeps up to max-main-memory-mb per open
+     * document on the heap and spills the rest, TEMP_FILE never uses the heap for stream
+     * data, MAIN_MEMORY is the unbounded legacy behaviour.
+     */
+    public enum MemoryMode {
+        MIXED,
+        TEMP_FILE,
+        MAIN_MEMORY
+    }
+
+    @PostConstruct
+    void init() {
+        admission = new Semaphore(maxConcurrent, true);
+
+        Gauge.builder("auditiq.extraction.active", admission, s -> maxConcurrent - s.availablePermits())
+                .description("Documents currently being extracted")
+                .register(meterRegistry);
+        Gauge.builder("auditiq.extraction.queued", admission, Semaphore::getQueueLength)
+                .description("Extractions waiting for an admission permit")
+                .register(meterRegistry);
+        Gauge.builder("auditiq.extraction.memory.in.use", openHandles, h -> h.get() * mainMemoryBudgetBytes())
+                .description("Main-memory budget held by open PDF handles")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("AuditIQ-PdfExtract-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        log.info("PDF extraction pool started with parallelism {}", threads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public boolean supports(String contentType, String fileName) {
+        return TextExtractor.matches(contentType, fileName, "application/pdf", ".pdf");
+    }
+
+    @Override
+    public String extractText(Path file) throws IOException {
+        ExtractedText extracted = extract(file);
+        log.info("Extracted {} characters from PDF ({} pages)", extracted.getText().length(), extracted.getPageCount());
+        return extracted.getText();
+    }
+
+    /**
+     * Extract the text of every page of the PDF at the given path
+     */
+    public ExtractedText extract(Path file) throws IOException {
+        try {
+            admission.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an extraction slot", e);
+        }
+
+        try {
+            return extractAdmitted(file);
+        } finally {
+            admission.release();
+        }
+    }
+
+    private ExtractedText extractAdmitted(Path file) throws IOException {
+        long start = System.currentTimeMillis();
+
+        int[] pageCount = new int[1];
+        ExtractedText sequential = withDocument(file, document -> {
+            pageCount[0] = document.getNumberOfPages();
+
+            // Small documents are not worth the extra parse per task
+            return pageCount[0] <= pagesPerTask
+                    ? ExtractedText.fromPages(stripPages(document, 1, pageCount[0]))
+                    : null;
+        });
+        if (sequential != null) {
+            return sequential;
+        }
+
+        try {
+            List<String> pages = pool.invoke(new PageRangeTask(file, 1, pageCount[0]));
+            ExtractedText extracted = ExtractedText.fromPages(pages);
+            log.info("Extracted {} pages in parallel in {} ms", pageCount[0], System.currentTimeMillis() - start);
+            return extracted;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Open the PDF from disk with the configured scratch-file settings and run the callback on it
+     */
+    private <T> T withDocument(Path file, DocumentCallback<T> callback) throws IOException {
+        try (PDDocument document = Loader.loadPDF(file.toFile(), memoryUsageSetting().streamCache)) {
+            openHandles.incrementAndGet();
+            try {
+                return callback.apply(document);
+            } finally {
+                openHandles.decrementAndGet();
+            }
+        }
+    }
+
+    private MemoryUsageSetting memoryUsageSetting() {
+        MemoryUsageSetting setting = switch (memoryMode) {
+            case TEMP_FILE -> MemoryUsageSetting.setupTempFileOnly();
+            case MAIN_MEMORY -> MemoryUsageSetting.setupMainMemoryOnly();
+            case MIXED -> MemoryUsageSetting.setupMixed(mainMemoryBudgetBytes());
+        };
+        return setting.setTempDir(new File(scratchDir));
+    }
+
+    private long mainMemoryBudgetBytes() {
+        return memoryMode == MemoryMode.TEMP_FILE ? 0 : maxMainMemoryMb * 1024 * 1024;
+    }
+
+    private static List<String> stripPages(PDDocument document, int firstPage, int lastPage) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        List<String> pages = new ArrayList<>(lastPage - firstPage + 1);
+        for (int page = firstPage; page <= lastPage; page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            pages.add(stripper.getText(document));
+        }
+        return pages;
+    }
+
+    @FunctionalInterface
+    private interface DocumentCallback<T> {
+        T apply(PDDocument document) throws IOException;
+    }
+
+    /**
+     * Splits [firstPage, lastPage] in halves until a range is small enough to strip directly
+     */
+    private class PageRangeTask extends RecursiveTask<List<String>> {
+
+        private final Path file;
+        private final int firstPage;
+        private final int lastPage;
+
+        PageRangeTask(Path file, int firstPage, int lastPage) {
+            this.file = file;
+            this.firstPage = firstPage;
+            this.lastPage = lastPage;
+        }
+
+        @Override
+        protected List<String> compute() {
+            if (lastPage - firstPage + 1 <= pagesPerTask) {
+                try {
+                    return withDocument(file, document -> stripPages(document, firstPage, lastPage));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            int middle = (firstPage + lastPage) >>> 1;
+            PageRangeTask left = new PageRangeTask(file, firstPage, middle);
+            PageRangeTask right = new PageRangeTask(file, middle + 1, lastPage);
+            left.fork();
+            List<String> rightPages = right.compute();
+            List<String> pages = new ArrayList<>(left.join());
+            pages.addAll(rightPages);
+            return pages;
+        }
+    }
+}
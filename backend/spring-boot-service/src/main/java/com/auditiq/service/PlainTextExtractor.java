@@ -0,0 +1,33 @@
+package com.auditiq.service;
+
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * text/* uploads, decoded as UTF-8 (malformed bytes are replaced rather than rejected)
+ */
+@Service
+public class PlainTextExtractor implements TextExtractor {
+
+    @Override
+    public boolean supports(String contentType, String fileName) {
+        return (contentType != null && contentType.startsWith("text/"))
+                || (fileName != null && fileName.toLowerCase().endsWith(".txt"));
+    }
+
+    @Override
+    public String extractText(Path file) throws IOException {
+        StringWriter text = new StringWriter();
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            reader.transferTo(text);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.auditiq.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.util.XMLHelper;
+import org.springframework.stereotype.Service;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PowerPoint (.pptx) text via a SAX pass over each slide part, in presentation order
+ * (the order of {@code <p:sldIdLst>}, not of the package relationships)
+ */
+@Slf4j
+@Service
+public class PptxTextExtractor implements TextExtractor {
+
+    private static final String CONTENT_TYPE =
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+    private static final String PRESENTATION_NS = "http://schemas.openxmlformats.org/presentationml/2006/main";
+    private static final String RELATIONSHIPS_NS =
+            "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    @Override
+    public boolean supports(String contentType, String fileName) {
+        return TextExtractor.matches(contentType, fileName, CONTENT_TYPE, ".pptx");
+    }
+
+    @Override
+    public String extractText(Path file) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            PackagePart presentation = pkg.getPart(pkg
+                    .getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT)
+                    .getRelationship(0));
+
+            StringBuilder text = new StringBuilder();
+            int slides = 0;
+            for (String relationshipId : slideRelationshipIds(presentation)) {
+                PackageRelationship slideRel = presentation.getRelationship(relationshipId);
+                if (slideRel == null) {
+                    continue;
+                }
+                OoxmlTextHandler.parse(presentation.getRelatedPart(slideRel), OoxmlTextHandler.DRAWING_NS, text);
+                text.append('\n');
+                slides++;
+            }
+            log.info("Extracted {} characters from {} slides", text.length(), slides);
+            return text.toString();
+
+        } catch (InvalidFormatException e) {
+            throw new IOException("Not a valid PowerPoint document: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The r:id of every {@code <p:sldId>} in presentation.xml, in the order the slides are shown
+     */
+    private static List<String> slideRelationshipIds(PackagePart presentation) throws IOException {
+        List<String> ids = new ArrayList<>();
+        try (InputStream in = presentation.getInputStream()) {
+            XMLReader reader = XMLHelper.newXMLReader();
+            reader.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if (PRESENTATION_NS.equals(uri) && "sldId".equals(localName)) {
+                        String id = attributes.getValue(RELATIONSHIPS_NS, "id");
+                        if (id != null) {
+                            ids.add(id);
+                        }
+                    }
+                }
+            });
+            reader.parse(new InputSource(in));
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("Could not parse " + presentation.getPartName() + ": " + e.getMessage(), e);
+        }
+        return ids;
+    }
+}
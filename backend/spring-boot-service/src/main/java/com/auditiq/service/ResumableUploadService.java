@@ -0,0 +1,260 @@
+package com.auditiq.service;
+
+import com.auditiq.exception.ResourceNotFoundException;
+import com.auditiq.model.AuditDocument;
+import com.auditiq.model.UploadSession;
+import com.auditiq.repository.UploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Resumable chunked uploads, modelled on tus: a client opens a session, sends chunks with
+ * PATCH at the current offset, asks for the offset after a dropped connection and carries
+ * on from there. Every chunk is streamed from the request straight into one S3 multipart
+ * part together with its SHA-256, which S3 verifies, so nothing is buffered here. Once the
+ * last byte arrives the parts are assembled in S3 and the object goes through the same
+ * fetch -> extract -> analyze pipeline as a direct upload.
+ */
+@Slf4j
+@Service
+public class ResumableUploadService {
+
+    // S3 limits: parts of at least 5 MB (except the last), at most 10,000 parts
+    public static final long MIN_CHUNK_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+
+    private final UploadSessionRepository sessionRepository;
+    private final S3StorageService storageService;
+    private final DocumentManagementService documentService;
+    private final DocumentIngestionPipeline ingestionPipeline;
+
+    @Value("${documents.resumable.max-size-mb:51200}")
+    private long maxSizeMb;
+
+    // Sessions without progress for this long are aborted and their parts discarded
+    @Value("${documents.resumable.expiry-hours:24}")
+    private long expiryHours;
+
+    // Longest a single chunk may take to stream before another request may take over the offset
+    @Value("${documents.resumable.chunk-lease-minutes:30}")
+    private long chunkLeaseMinutes;
+
+    public ResumableUploadService(UploadSessionRepository sessionRepository,
+                                  S3StorageService storageService,
+                                  DocumentManagementService documentService,
+                                  DocumentIngestionPipeline ingestionPipeline) {
+        this.sessionRepository = sessionRepository;
+        this.storageService = storageService;
+        this.documentService = documentService;
+        this.ingestionPipeline = ingestionPipeline;
+    }
+
+    public UploadSession createSession(String fileName, String contentType, long uploadLength,
+                                       String standard, String uploadedBy) {
+        if (fileName == null || standard == null || uploadLength <= 0) {
+            throw new IllegalArgumentException("fileName, standard and a positive upload length are required");
+        }
+        if (uploadLength > maxSizeMb * 1024 * 1024) {
+            throw new IllegalArgumentException("Upload exceeds the maximum size of " + maxSizeMb + " MB");
+        }
+        AuditDocument.ComplianceStandard.valueOf(standard.toUpperCase().replace(" ", "_"));
+
+        String s3Key = documentService.generateS3Key(fileName);
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setS3Key(s3Key);
+        session.setMultipartUploadId(storageService.startChecksummedUpload(s3Key, contentType));
+        session.setFileName(fileName);
+        session.setContentType(contentType);
+        session.setUploadLength(uploadLength);
+        session.setStandard(standard);
+        session.setUploadedBy(uploadedBy != null ? uploadedBy : "system");
+
+        UploadSession saved = sessionRepository.save(session);
+        log.info("Resumable upload {} opened for {} ({} bytes)", saved.getId(), fileName, uploadLength);
+        return saved;
+    }
+
+    public UploadSession getSession(String id) {
+        return sessionRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found: " + id));
+    }
+
+    /**
+     * Append one chunk at the given offset. Non-final chunks must be at least
+     * {@link #MIN_CHUNK_SIZE}; the checksum is the tus Upload-Checksum value "sha256 &lt;base64&gt;".
+     * When the chunk completes the upload the document is registered and extraction starts.
+     * A zero-length PATCH at the end offset retries a registration that was rejected earlier.
+     */
+    public UploadSession appendChunk(String id, long offset, InputStream body, long length, String uploadChecksum) {
+        UploadSession session = getSession(id);
+        if (session.getStatus() == UploadSession.Status.COMPLETED) {
+            throw new OffsetConflictException("Upload " + id + " is already complete");
+        }
+        if (offset != session.getUploadOffset()) {
+            throw new OffsetConflictException("Upload " + id + " is at offset " + session.getUploadOffset()
+                    + ", not " + offset);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (sessionRepository.claimLease(id, offset, now, now.plusMinutes(chunkLeaseMinutes)) == 0) {
+            throw new OffsetConflictException("Upload " + id + " is busy with another chunk at offset " + offset);
+        }
+        try {
+            // Re-read under the lease: the offset and parts cannot move until it is released
+            session = getSession(id);
+            if (length > 0) {
+                session = storeChunk(session, body, length, uploadChecksum);
+            }
+            if (session.getUploadOffset().equals(session.getUploadLength())) {
+                session = finish(session);
+            }
+            return session;
+        } finally {
+            sessionRepository.releaseLease(id);
+        }
+    }
+
+    public void abortSession(String id) {
+        UploadSession session = getSession(id);
+        if (session.getStatus() != UploadSession.Status.ACTIVE) {
+            throw new OffsetConflictException("Upload " + id + " is already assembled and cannot be aborted");
+        }
+        storageService.abortMultipartUpload(session.getS3Key(), session.getMultipartUploadId());
+        sessionRepository.delete(session);
+        log.info("Resumable upload {} aborted", id);
+    }
+
+    /**
+     * Abort sessions that have not made progress within the expiry window, so their parts stop
+     * accruing storage, and drop finished sessions after the same window. An assembled (STORED)
+     * session whose document was never registered takes its unreferenced object with it.
+     */
+    @Scheduled(fixedDelayString = "${documents.resumable.cleanup-interval-ms:3600000}",
+            initialDelayString = "${documents.resumable.cleanup-interval-ms:3600000}")
+    public void expireStaleSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(expiryHours);
+        List<UploadSession> stale = sessionRepository.findTop100ByStatusInAndUpdatedAtBefore(
+                List.of(UploadSession.Status.ACTIVE, UploadSession.Status.STORED, UploadSession.Status.COMPLETED),
+                cutoff);
+        for (UploadSession session : stale) {
+            try {
+                if (session.getStatus() == UploadSession.Status.ACTIVE) {
+                    storageService.abortMultipartUpload(session.getS3Key(), session.getMultipartUploadId());
+                    log.info("Expired resumable upload {} at offset {}", session.getId(), session.getUploadOffset());
+                } else if (session.getStatus() == UploadSession.Status.STORED
+                        && !documentService.isKeyReferenced(session.getS3Key())) {
+                    storageService.deleteFile(session.getS3Key());
+                    log.info("Expired assembled upload {} that was never registered", session.getId());
+                }
+                sessionRepository.delete(session);
+            } catch (RuntimeException e) {
+                log.warn("Could not expire upload session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private UploadSession storeChunk(UploadSession session, InputStream body, long length, String uploadChecksum) {
+        if (session.getStatus() != UploadSession.Status.ACTIVE) {
+            throw new OffsetConflictException("Upload " + session.getId() + " is already assembled");
+        }
+        long end = session.getUploadOffset() + length;
+        if (end > session.getUploadLength()) {
+            throw new IllegalArgumentException("Chunk runs past the declared upload length");
+        }
+        if (end < session.getUploadLength() && length < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunks before the last must be at least " + MIN_CHUNK_SIZE + " bytes");
+        }
+        int partNumber = session.getParts().size() + 1;
+        if (partNumber > MAX_PARTS) {
+            throw new IllegalArgumentException("Upload exceeds " + MAX_PARTS + " chunks; use larger chunks");
+        }
+        String checksum = parseSha256(uploadChecksum);
+
+        String etag;
+        try {
+            etag = storageService.uploadChecksummedPart(session.getS3Key(), session.getMultipartUploadId(),
+                    partNumber, body, length, checksum);
+        } catch (S3Exception e) {
+            if ("BadDigest".equals(e.awsErrorDetails() != null ? e.awsErrorDetails().errorCode() : null)) {
+                throw new ChecksumMismatchException("Chunk at offset " + session.getUploadOffset()
+                        + " does not match its checksum");
+            }
+            throw e;
+        }
+
+        session.getParts().add(new UploadSession.Part(partNumber, etag, checksum, length));
+        session.setUploadOffset(end);
+        try {
+            return sessionRepository.save(session);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // The lease ran out mid-chunk and another request advanced the session meanwhile
+            throw new OffsetConflictException("Upload " + session.getId() + " was advanced concurrently");
+        }
+    }
+
+    private UploadSession finish(UploadSession session) {
+        if (session.getStatus() == UploadSession.Status.ACTIVE) {
+            storageService.completeChecksummedUpload(session.getS3Key(), session.getMultipartUploadId(),
+                    session.getParts());
+            session.setStatus(UploadSession.Status.STORED);
+            session = sessionRepository.save(session);
+        }
+
+        // Throws RejectedExecutionException when the pipeline is full; the session stays STORED
+        AuditDocument document = ingestionPipeline.submitStored(session.getS3Key(), session.getUploadLength(),
+                session.getFileName(), session.getContentType(), session.getStandard(), session.getUploadedBy());
+        session.setDocumentId(document.getId());
+        session.setStatus(UploadSession.Status.COMPLETED);
+        log.info("Resumable upload {} complete as document {}", session.getId(), document.getId());
+        return sessionRepository.save(session);
+    }
+
+    private static String parseSha256(String uploadChecksum) {
+        if (uploadChecksum == null) {
+            throw new IllegalArgumentException("Upload-Checksum header is required");
+        }
+        String[] parts = uploadChecksum.trim().split("\\s+");
+        if (parts.length != 2 || !parts[0].equalsIgnoreCase("sha256")) {
+            throw new IllegalArgumentException("Upload-Checksum must be \"sha256 <base64 digest>\"");
+        }
+        byte[] digest;
+        try {
+            digest = Base64.getDecoder().decode(parts[1]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Upload-Checksum digest is not valid base64");
+        }
+        if (digest.length != 32) {
+            throw new IllegalArgumentException("Upload-Checksum digest is not a SHA-256");
+        }
+        return parts[1];
+    }
+
+    /**
+     * The request does not match the session's current offset or state
+     */
+    public static class OffsetConflictException extends RuntimeException {
+        public OffsetConflictException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The chunk's bytes do not match the checksum the client sent with them
+     */
+    public static class ChecksumMismatchException extends RuntimeException {
+        public ChecksumMismatchException(String message) {
+            super(message);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.auditiq.exception.ResourceNotFoundException;
 import com.auditiq.model.AuditDocument;
 import com.auditiq.model.RiskAssessment;
 import com.auditiq.repository.AuditDocumentRepository;
+import com.auditiq.repository.DocumentContentRepository;
 import com.auditiq.repository.RiskAssessmentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +21,7 @@ public class RiskAssessmentService {
 
     private final RiskAssessmentRepository riskRepository;
     private final AuditDocumentRepository documentRepository;
+    private final DocumentContentRepository contentRepository;
     private final PythonMLClient pythonMLClient;
 
     @Transactional
@@ -27,14 +29,15 @@ public class RiskAssessmentService {
         AuditDocument document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + documentId));
 
-        if (document.getExtractedText() == null || document.getExtractedText().isEmpty()) {
+        String extractedText = contentRepository.findTextByDocumentId(documentId).orElse(null);
+        if (extractedText == null || extractedText.isEmpty()) {
             throw new IllegalArgumentException("Document has no extracted text for analysis");
         }
 
         RiskAssessmentResponse mlResponse;
-        if (document.getExtractedText() != null && !document.getExtractedText().isEmpty()) {
+        if (extractedText != null && !extractedText.isEmpty()) {
             mlResponse = pythonMLClient.assessRisk(
-                    document.getExtractedText(),
+                    extractedText,
                     document.getStandard().name()
             );
         } else {
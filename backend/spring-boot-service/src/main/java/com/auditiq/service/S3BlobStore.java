@@ -0,0 +1,291 @@
+package com.auditiq.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * BlobStore backed by an S3 bucket.
+ * Streamed writes are buffered one part at a time: blobs smaller than a part go up with a
+ * single PUT, larger ones as a multipart upload that is aborted if the write fails.
+ * Whole-file put/get go through {@link S3TransferService} for parallel part transfers.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3BlobStore implements BlobStore {
+
+    // S3 rejects multipart parts smaller than 5 MB (except the last one)
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    // Upper bound on keys per DeleteObjects request and per ListObjectsV2 page
+    private static final int MAX_KEYS_PER_REQUEST = 1000;
+
+    private final S3Client s3Client;
+    private final S3TransferService transferService;
+
+    @Value("${aws.s3.bucket-name}")
+    private String bucketName;
+
+    @Value("${documents.ingest.part-size-mb:8}")
+    private int partSizeMb;
+
+    @Override
+    public BlobOutputStream create(String key, String contentType) {
+        return new MultipartOutputStream(key, contentType, Math.max(MIN_PART_SIZE, partSizeMb * 1024 * 1024));
+    }
+
+    /**
+     * Files are uploaded as parallel parts by the transfer service
+     */
+    @Override
+    public void put(String key, Path file, String contentType) throws IOException {
+        transferService.upload(file, key, contentType);
+    }
+
+    @Override
+    public void get(String key, Path target) throws IOException {
+        transferService.download(key, target);
+    }
+
+    @Override
+    public InputStream open(String key) {
+        return s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+
+    @Override
+    public InputStream open(String key, long start, long end) {
+        return s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range("bytes=" + start + "-" + end)
+                .build());
+    }
+
+    @Override
+    public boolean exists(String key) {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String etag(String key) {
+        return s3Client.headObject(HeadObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .build())
+                .eTag();
+    }
+
+    @Override
+    public void delete(String key) {
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+        log.info("Deleted from S3: {}", key);
+    }
+
+    /**
+     * Batched DeleteObjects calls of up to 1000 keys. Quiet mode makes S3 report only the
+     * keys it failed to delete; a batch that fails as a whole counts all of its keys.
+     */
+    @Override
+    public void deleteAll(Collection<String> keys) throws IOException {
+        List<String> pending = new ArrayList<>(keys);
+        List<String> failed = new ArrayList<>();
+
+        for (int from = 0; from < pending.size(); from += MAX_KEYS_PER_REQUEST) {
+            List<String> batch = pending.subList(from, Math.min(from + MAX_KEYS_PER_REQUEST, pending.size()));
+            try {
+                DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                        .bucket(bucketName)
+                        .delete(Delete.builder()
+                                .quiet(true)
+                                .objects(batch.stream()
+                                        .map(key -> ObjectIdentifier.builder().key(key).build())
+                                        .toList())
+                                .build())
+                        .build());
+                for (S3Error error : response.errors()) {
+                    log.error("S3 could not delete {}: {} {}", error.key(), error.code(), error.message());
+                    failed.add(error.key());
+                }
+            } catch (SdkException e) {
+                log.error("DeleteObjects batch of {} keys failed: {}", batch.size(), e.getMessage());
+                failed.addAll(batch);
+            }
+        }
+
+        log.info("Deleted {} of {} objects from S3", pending.size() - failed.size(), pending.size());
+        if (!failed.isEmpty()) {
+            throw new DeleteFailedException(failed);
+        }
+    }
+
+    @Override
+    public void list(String prefix, Consumer<List<BlobInfo>> pageConsumer) {
+        s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                        .bucket(bucketName)
+                        .prefix(prefix)
+                        .maxKeys(MAX_KEYS_PER_REQUEST)
+                        .build())
+                .forEach(page -> pageConsumer.accept(page.contents().stream()
+                        .map(object -> new BlobInfo(object.key(), object.size(), object.lastModified()))
+                        .toList()));
+    }
+
+    @Override
+    public String locationOf(String key) {
+        return String.format("https://%s.s3.amazonaws.com/%s", bucketName, key);
+    }
+
+    /**
+     * Uploads every full buffer as a part; close() sends the remainder and completes the upload
+     */
+    private class MultipartOutputStream extends BlobOutputStream {
+
+        private final String key;
+        private final String contentType;
+        private final byte[] buffer;
+        private final List<CompletedPart> parts = new ArrayList<>();
+        private int count;
+        private String uploadId;
+        private boolean closed;
+
+        MultipartOutputStream(String key, String contentType, int partSize) {
+            this.key = key;
+            this.contentType = contentType;
+            this.buffer = new byte[partSize];
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Blob stream for " + key + " is closed");
+            }
+            while (len > 0) {
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count == buffer.length) {
+                    uploadPart();
+                }
+            }
+        }
+
+        private void uploadPart() {
+            if (uploadId == null) {
+                uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .contentType(contentType)
+                                .build())
+                        .uploadId();
+            }
+
+            int partNumber = parts.size() + 1;
+            UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .partNumber(partNumber)
+                            .contentLength((long) count)
+                            .build(),
+                    RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, count), count));
+
+            parts.add(CompletedPart.builder()
+                    .partNumber(partNumber)
+                    .eTag(response.eTag())
+                    .build());
+            count = 0;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            if (uploadId == null) {
+                // Whole blob fits in a single part - a plain PUT is cheaper than a multipart round trip
+                s3Client.putObject(PutObjectRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .contentType(contentType)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, count), count));
+                return;
+            }
+
+            try {
+                if (count > 0) {
+                    uploadPart();
+                }
+                s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                        .build());
+                log.info("Completed multipart upload of {} in {} parts", key, parts.size());
+            } catch (RuntimeException e) {
+                abortUpload();
+                throw e;
+            }
+        }
+
+        @Override
+        public void abort() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            abortUpload();
+        }
+
+        private void abortUpload() {
+            if (uploadId == null) {
+                return;
+            }
+            try {
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .build());
+            } catch (Exception e) {
+                log.warn("Could not abort multipart upload {} for {}: {}", uploadId, key, e.getMessage());
+            }
+        }
+    }
+}
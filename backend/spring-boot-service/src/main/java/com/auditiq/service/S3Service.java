@@ -1,110 +0,0 @@
-package com.auditiq.service;
-
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.*;
-
-import java.io.IOException;
-import java.util.UUID;
-
-@Slf4j
-@Service
-@RequiredArgsConstructor
-public class S3Service {
-
-    private final S3Client s3Client;
-
-    @Value("${aws.s3.bucket}")
-    private String bucketName;
-
-    public String uploadFile(MultipartFile file) {
-        try {
-            String key = generateFileKey(file.getOriginalFilename());
-            
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .contentType(file.getContentType())
-                    .build();
-
-            s3Client.putObject(putObjectRequest, 
-                    RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
-
-            log.info("File uploaded to S3: {}", key);
-            return key;
-
-        } catch (IOException e) {
-            log.error("Error uploading file to S3: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to upload file to S3", e);
-        }
-    }
-
-    public byte[] downloadFile(String key) {
-        try {
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .build();
-
-            return s3Client.getObjectAsBytes(getObjectRequest).asByteArray();
-
-        } catch (Exception e) {
-            log.error("Error downloading file from S3: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to download file from S3", e);
-        }
-    }
-
-    public void deleteFile(String key) {
-        try {
-            DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .build();
-
-            s3Client.deleteObject(deleteObjectRequest);
-            log.info("File deleted from S3: {}", key);
-
-        } catch (Exception e) {
-            log.error("Error deleting file from S3: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to delete file from S3", e);
-        }
-    }
-
-    public String getFileUrl(String key) {
-        return String.format("https://%s.s3.amazonaws.com/%s", bucketName, key);
-    }
-
-    public boolean fileExists(String key) {
-        try {
-            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .build();
-
-            s3Client.headObject(headObjectRequest);
-            return true;
-
-        } catch (NoSuchKeyException e) {
-            return false;
-        } catch (Exception e) {
-            log.error("Error checking file existence: {}", e.getMessage(), e);
-            return false;
-        }
-    }
-
-    private String generateFileKey(String originalFilename) {
-        String uuid = UUID.randomUUID().toString();
-        String extension = "";
-        
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        }
-        
-        return "documents/" + uuid + extension;
-    }
-}
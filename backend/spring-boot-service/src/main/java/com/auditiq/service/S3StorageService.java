@@ -1,8 +1,14 @@
 package com.auditiq.service;
 
+import com.auditiq.dto.DirectUploadCompleteRequest;
+import com.auditiq.dto.DirectUploadResponse;
 import com.auditiq.exception.S3StorageException;
+import com.auditiq.model.UploadSession;
+import com.auditiq.repository.UploadSessionRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
@@ -11,44 +17,372 @@ import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedUploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.UUID;
 
+/**
+ * File operations on top of the configured {@link BlobStore}, plus S3 presigned URLs
+ * (downloads, and direct browser-to-S3 uploads)
+ */
 @Service
 @Slf4j
 public class S3StorageService {
 
+    // S3 limits: parts of at least 5 MB (except the last), at most 10,000 parts
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+
+    private final BlobStore blobStore;
     private final S3Client s3Client;
     private final S3Presigner s3Presigner;
+    private final UploadSessionRepository sessionRepository;
 
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
 
-    public S3StorageService(S3Client s3Client, S3Presigner s3Presigner) {
+    @Value("${storage.backend:s3}")
+    private String storageBackend;
+
+    @Value("${documents.direct-upload.multipart-threshold-mb:64}")
+    private long multipartThresholdMb;
+
+    @Value("${documents.direct-upload.part-size-mb:16}")
+    private long partSizeMb;
+
+    @Value("${documents.direct-upload.url-expiry-minutes:60}")
+    private long urlExpiryMinutes;
+
+    // Signs the upload tokens handed out with presigned uploads; must be the same on every
+    // instance. Unset, each instance signs with its own random key.
+    @Value("${documents.direct-upload.token-secret:}")
+    private String uploadTokenSecret;
+
+    // How long after presigning the upload may still be completed
+    @Value("${documents.direct-upload.token-expiry-hours:24}")
+    private long uploadTokenExpiryHours;
+
+    private SecretKeySpec uploadTokenKey;
+
+    @Value("${documents.download.url-expiry-minutes:15}")
+    private long downloadUrlExpiryMinutes;
+
+    // Cached URLs are handed out until this long before they expire
+    @Value("${documents.download.url-refresh-margin-seconds:60}")
+    private long downloadUrlRefreshMarginSeconds;
+
+    @Value("${documents.download.url-cache-size:10000}")
+    private int downloadUrlCacheSize;
+
+    private final Map<String, CachedUrl> downloadUrls = new ConcurrentHashMap<>();
+
+    public S3StorageService(BlobStore blobStore, S3Client s3Client, S3Presigner s3Presigner,
+                            UploadSessionRepository sessionRepository) {
+        this.blobStore = blobStore;
         this.s3Client = s3Client;
         this.s3Presigner = s3Presigner;
+        this.sessionRepository = sessionRepository;
     }
 
-    public String uploadFile(MultipartFile file) {
-        String fileName = generateFileName(file.getOriginalFilename());
-        
+    @PostConstruct
+    void initUploadTokenKey() {
+        byte[] secret;
+        if (uploadTokenSecret.isEmpty()) {
+            log.warn("documents.direct-upload.token-secret not set: direct uploads can only be "
+                    + "completed on the instance that presigned them");
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        } else {
+            secret = uploadTokenSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        uploadTokenKey = new SecretKeySpec(secret, "HmacSHA256");
+    }
+
+    /**
+     * Presign the upload of a new object so the browser can send it straight to S3.
+     * Files above the multipart threshold get a multipart upload with one presigned URL per part.
+     */
+    public DirectUploadResponse presignUpload(String key, String contentType, long fileSize) {
+        requireS3Backend();
+        Duration expiry = Duration.ofMinutes(urlExpiryMinutes);
+        Instant expiresAt = Instant.now().plus(expiry);
+
+        if (fileSize <= multipartThresholdMb * 1024 * 1024) {
+            PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                    .signatureDuration(expiry)
+                    .putObjectRequest(PutObjectRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .contentType(contentType)
+                            .build())
+                    .build());
+            return DirectUploadResponse.builder()
+                    .s3Key(key)
+                    .url(presigned.url().toString())
+                    .uploadToken(uploadToken(key, null))
+                    .expiresAt(expiresAt)
+                    .build();
+        }
+
+        // Grow the part size if the configured one would need more than 10,000 parts
+        long partSize = Math.max(Math.max(MIN_PART_SIZE, partSizeMb * 1024 * 1024),
+                (fileSize + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) ((fileSize + partSize - 1) / partSize);
+
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build())
+                .uploadId();
+
+        List<DirectUploadResponse.PresignedPart> parts = new ArrayList<>(partCount);
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            UploadPartRequest part = UploadPartRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .build();
+            PresignedUploadPartRequest presigned = s3Presigner.presignUploadPart(UploadPartPresignRequest.builder()
+                    .signatureDuration(expiry)
+                    .uploadPartRequest(part)
+                    .build());
+            parts.add(new DirectUploadResponse.PresignedPart(partNumber, presigned.url().toString()));
+        }
+
+        log.info("Presigned multipart upload {} for {} ({} parts of {} bytes)", uploadId, key, partCount, partSize);
+        return DirectUploadResponse.builder()
+                .s3Key(key)
+                .uploadId(uploadId)
+                .partSize(partSize)
+                .parts(parts)
+                .uploadToken(uploadToken(key, uploadId))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    /**
+     * Whether the token was issued by presignUpload for this key (and multipart upload id)
+     * and has not expired, so completion only ever registers objects this service handed out
+     */
+    public boolean isValidUploadToken(String key, String uploadId, String token) {
+        if (key == null || token == null) {
+            return false;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return false;
+        }
+        long expires;
+        try {
+            expires = Long.parseLong(token.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (Instant.now().getEpochSecond() > expires) {
+            return false;
+        }
+        byte[] expected = sign(key, uploadId, expires);
+        byte[] actual;
+        try {
+            actual = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    // <expiry epoch seconds>.<HMAC-SHA256 of key, upload id and expiry>
+    private String uploadToken(String key, String uploadId) {
+        long expires = Instant.now().plus(Duration.ofHours(uploadTokenExpiryHours)).getEpochSecond();
+        return expires + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(key, uploadId, expires));
+    }
+
+    private byte[] sign(String key, String uploadId, long expires) {
         try {
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(uploadTokenKey);
+            String payload = key + "\n" + (uploadId != null ? uploadId : "") + "\n" + expires;
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    /**
+     * Finish a direct upload (completing the multipart upload if there is one) and return the stored size
+     */
+    public long completeUpload(String key, String uploadId, List<DirectUploadCompleteRequest.UploadedPart> parts) {
+        requireS3Backend();
+        if (uploadId != null && (parts == null || parts.isEmpty())) {
+            throw new IllegalArgumentException("A multipart upload needs the ETag of every part");
+        }
+        if (uploadId != null) {
+            List<CompletedPart> completed = parts.stream()
+                    .sorted(Comparator.comparingInt(DirectUploadCompleteRequest.UploadedPart::getPartNumber))
+                    .map(part -> CompletedPart.builder()
+                            .partNumber(part.getPartNumber())
+                            .eTag(part.getEtag())
+                            .build())
+                    .toList();
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                    .build());
+            log.info("Completed direct multipart upload {} for {}", uploadId, key);
+        }
+
+        return s3Client.headObject(HeadObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .build())
+                .contentLength();
+    }
+
+    /**
+     * Open a multipart upload whose parts each carry a client-supplied SHA-256, for resumable uploads
+     */
+    public String startChecksummedUpload(String key, String contentType) {
+        requireS3Backend();
+        return s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .checksumAlgorithm(ChecksumAlgorithm.SHA256)
+                        .build())
+                .uploadId();
+    }
+
+    /**
+     * Stream one part straight from the input to S3. S3 verifies the part against the
+     * base64 SHA-256 and rejects it (BadDigest) on a mismatch. Returns the part's ETag.
+     */
+    public String uploadChecksummedPart(String key, String uploadId, int partNumber,
+                                        InputStream in, long length, String checksumSha256) {
+        return s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength(length)
+                                .checksumSHA256(checksumSha256)
+                                .build(),
+                        RequestBody.fromInputStream(in, length))
+                .eTag();
+    }
+
+    /**
+     * Assemble the parts of a checksummed upload into the final object (server-side, no bytes move)
+     */
+    public void completeChecksummedUpload(String key, String uploadId, List<UploadSession.Part> parts) {
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
                 .bucket(bucketName)
-                .key(fileName)
-                .contentType(file.getContentType())
-                .build();
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder()
+                        .parts(parts.stream()
+                                .sorted(Comparator.comparingInt(UploadSession.Part::getPartNumber))
+                                .map(part -> CompletedPart.builder()
+                                        .partNumber(part.getPartNumber())
+                                        .eTag(part.getEtag())
+                                        .checksumSHA256(part.getChecksumSha256())
+                                        .build())
+                                .toList())
+                        .build())
+                .build());
+        log.info("Completed resumable upload {} for {} in {} parts", uploadId, key, parts.size());
+    }
+
+    public void abortMultipartUpload(String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (NoSuchUploadException e) {
+            log.debug("Multipart upload {} for {} already gone", uploadId, key);
+        }
+    }
+
+    /**
+     * Abort direct multipart uploads that were presigned but never completed, so their parts
+     * stop accruing storage. Once the upload token has expired they can no longer be completed.
+     * Multipart uploads of resumable sessions are left to the session expiry.
+     */
+    @Scheduled(fixedDelayString = "${documents.direct-upload.cleanup-interval-ms:3600000}",
+            initialDelayString = "${documents.direct-upload.cleanup-interval-ms:3600000}")
+    public void abortAbandonedUploads() {
+        if (!supportsPresignedUrls()) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(Duration.ofHours(uploadTokenExpiryHours));
+        int aborted = 0;
+        try {
+            for (MultipartUpload upload : s3Client.listMultipartUploadsPaginator(ListMultipartUploadsRequest.builder()
+                    .bucket(bucketName)
+                    .prefix("documents/")
+                    .build()).uploads()) {
+                if (upload.initiated().isBefore(cutoff)
+                        && !sessionRepository.existsByMultipartUploadId(upload.uploadId())) {
+                    abortMultipartUpload(upload.key(), upload.uploadId());
+                    aborted++;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not sweep abandoned multipart uploads: {}", e.getMessage());
+        }
+        if (aborted > 0) {
+            log.info("Aborted {} abandoned direct multipart upload(s)", aborted);
+        }
+    }
+
+    private void requireS3Backend() {
+        if (!supportsPresignedUrls()) {
+            throw new UnsupportedOperationException("Direct and resumable uploads require the S3 storage backend");
+        }
+    }
+
+    public String uploadFile(MultipartFile file) {
+        String fileName = generateFileName(file.getOriginalFilename());
+
+        BlobStore.BlobOutputStream out = null;
+        try (InputStream in = file.getInputStream()) {
+            out = blobStore.create(fileName, file.getContentType());
+            in.transferTo(out);
+            out.close();
 
-            s3Client.putObject(putObjectRequest, RequestBody.fromBytes(file.getBytes()));
-            
             log.info("File uploaded successfully: {}", fileName);
             return fileName;
-            
-        } catch (IOException e) {
-            log.error("Error uploading file to S3: {}", e.getMessage());
-            throw new S3StorageException("Failed to upload file to S3", e);
+
+        } catch (IOException | RuntimeException e) {
+            if (out != null) {
+                out.abort();
+            }
+            log.error("Error uploading file: {}", e.getMessage());
+            throw new S3StorageException("Failed to upload file", e);
         }
     }
 
@@ -73,34 +407,81 @@ public class S3StorageService {
         }
     }
 
-    public byte[] downloadFile(String fileName) {
+    /**
+     * Presigned GET that makes S3 answer with the given Content-Disposition and Content-Type.
+     * URLs are cached per (key, disposition, type) and reused until shortly before they expire.
+     */
+    public String getFileUrl(String fileName, String contentDisposition, String contentType) {
+        String cacheKey = fileName + '\n' + contentDisposition + '\n' + contentType;
+        Instant now = Instant.now();
+
+        CachedUrl cached = downloadUrls.get(cacheKey);
+        if (cached != null && now.isBefore(cached.refreshAt())) {
+            return cached.url();
+        }
+
         try {
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                .bucket(bucketName)
-                .key(fileName)
-                .build();
+            Duration expiry = Duration.ofMinutes(downloadUrlExpiryMinutes);
+            PresignedGetObjectRequest presignedRequest = s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(expiry)
+                .getObjectRequest(GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(fileName)
+                    .responseContentDisposition(contentDisposition)
+                    .responseContentType(contentType)
+                    .build())
+                .build());
+
+            String url = presignedRequest.url().toString();
+            cacheDownloadUrl(cacheKey, new CachedUrl(url,
+                    presignedRequest.expiration().minusSeconds(downloadUrlRefreshMarginSeconds)), now);
+            return url;
+
+        } catch (Exception e) {
+            log.error("Error generating presigned URL: {}", e.getMessage());
+            throw new S3StorageException("Failed to generate file URL", e);
+        }
+    }
+
+    /**
+     * Whether downloads can be served as redirects to presigned URLs
+     */
+    public boolean supportsPresignedUrls() {
+        return "s3".equalsIgnoreCase(storageBackend);
+    }
+
+    private void cacheDownloadUrl(String cacheKey, CachedUrl url, Instant now) {
+        if (downloadUrls.size() >= downloadUrlCacheSize) {
+            downloadUrls.values().removeIf(cached -> !now.isBefore(cached.refreshAt()));
+            if (downloadUrls.size() >= downloadUrlCacheSize) {
+                // Everything still live - start over rather than grow without bound
+                downloadUrls.clear();
+            }
+        }
+        downloadUrls.put(cacheKey, url);
+    }
+
+    private record CachedUrl(String url, Instant refreshAt) {
+    }
+
+    public byte[] downloadFile(String fileName) {
+        try (InputStream in = blobStore.open(fileName)) {
+            return in.readAllBytes();
 
-            return s3Client.getObjectAsBytes(getObjectRequest).asByteArray();
-            
         } catch (Exception e) {
-            log.error("Error downloading file from S3: {}", e.getMessage());
-            throw new S3StorageException("Failed to download file from S3", e);
+            log.error("Error downloading file: {}", e.getMessage());
+            throw new S3StorageException("Failed to download file", e);
         }
     }
 
     public void deleteFile(String fileName) {
         try {
-            DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
-                .bucket(bucketName)
-                .key(fileName)
-                .build();
-
-            s3Client.deleteObject(deleteObjectRequest);
+            blobStore.delete(fileName);
             log.info("File deleted successfully: {}", fileName);
             
         } catch (Exception e) {
-            log.error("Error deleting file from S3: {}", e.getMessage());
-            throw new S3StorageException("Failed to delete file from S3", e);
+            log.error("Error deleting file: {}", e.getMessage());
+            throw new S3StorageException("Failed to delete file", e);
         }
     }
 
@@ -114,19 +495,11 @@ public class S3StorageService {
 
     public boolean fileExists(String fileName) {
         try {
-            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
-                .bucket(bucketName)
-                .key(fileName)
-                .build();
+            return blobStore.exists(fileName);
 
-            s3Client.headObject(headObjectRequest);
-            return true;
-            
-        } catch (NoSuchKeyException e) {
-            return false;
         } catch (Exception e) {
             log.error("Error checking file existence: {}", e.getMessage());
             throw new S3StorageException("Failed to check file existence", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,315 @@
+package com.auditiq.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.FileTransformerConfiguration;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Parallel S3 transfers between local files and objects.
+ * Objects larger than one part are split into part-sized ranges that are uploaded
+ * (multipart) or downloaded (ranged GETs written at their file offset) concurrently on
+ * the async client. A shared semaphore caps the parts in flight across all transfers.
+ * Upload parts are streamed from the file region, so no part is buffered on the heap.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3TransferService {
+
+    // S3 rejects multipart parts smaller than 5 MB (except the last one)
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucketName;
+    private final long partSize;
+    private final Semaphore partsInFlight;
+
+    private final Timer uploadTimer;
+    private final Timer downloadTimer;
+    private final DistributionSummary uploadThroughput;
+    private final DistributionSummary downloadThroughput;
+    private final Counter uploadBytes;
+    private final Counter downloadBytes;
+
+    public S3TransferService(S3AsyncClient s3AsyncClient,
+                             MeterRegistry meterRegistry,
+                             @Value("${aws.s3.bucket-name}") String bucketName,
+                             @Value("${storage.s3.transfer.part-size-mb:16}") long partSizeMb,
+                             @Value("${storage.s3.transfer.concurrency:8}") int concurrency) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucketName = bucketName;
+        this.partSize = Math.max(MIN_PART_SIZE, partSizeMb * 1024 * 1024);
+        this.partsInFlight = new Semaphore(concurrency);
+
+        this.uploadTimer = transferTimer("upload", meterRegistry);
+        this.downloadTimer = transferTimer("download", meterRegistry);
+        this.uploadThroughput = throughputSummary("upload", meterRegistry);
+        this.downloadThroughput = throughputSummary("download", meterRegistry);
+        this.uploadBytes = bytesCounter("upload", meterRegistry);
+        this.downloadBytes = bytesCounter("download", meterRegistry);
+    }
+
+    /**
+     * Upload a local file to the key, in parallel parts when it is larger than one part
+     */
+    public void upload(Path file, String key, String contentType) throws IOException {
+        long size = Files.size(file);
+        long start = System.nanoTime();
+
+        if (size <= partSize) {
+            await(s3AsyncClient.putObject(PutObjectRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .contentType(contentType)
+                            .build(),
+                    AsyncRequestBody.fromFile(file)));
+        } else {
+            uploadMultipart(file, key, contentType, size);
+        }
+
+        record("upload", key, size, System.nanoTime() - start, uploadTimer, uploadThroughput, uploadBytes);
+    }
+
+    /**
+     * Download the object at key into a local file (replacing it), in parallel ranges when
+     * it is larger than one part. Ranges are pinned to the object's ETag so a concurrent
+     * overwrite fails the transfer instead of mixing versions.
+     */
+    public void download(String key, Path target) throws IOException {
+        long start = System.nanoTime();
+        HeadObjectResponse head = await(s3AsyncClient.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build()));
+        long size = head.contentLength();
+
+        if (size <= partSize) {
+            await(s3AsyncClient.getObject(GetObjectRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .build(),
+                    AsyncResponseTransformer.toFile(target, FileTransformerConfiguration.defaultCreateOrReplaceExisting())));
+        } else {
+            downloadRanges(key, head.eTag(), target, size);
+        }
+
+        record("download", key, size, System.nanoTime() - start, downloadTimer, downloadThroughput, downloadBytes);
+    }
+
+    private void uploadMultipart(Path file, String key, String contentType, long size) throws IOException {
+        String uploadId = await(s3AsyncClient.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build()))
+                .uploadId();
+
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long length = Math.min(partSize, size - offset);
+                parts.add(uploadPart(file, key, uploadId, partNumber, offset, length));
+            }
+
+            List<CompletedPart> completed = new ArrayList<>();
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completed.add(await(part));
+            }
+            completed.sort(Comparator.comparing(CompletedPart::partNumber));
+
+            await(s3AsyncClient.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                    .build()));
+
+        } catch (IOException | RuntimeException e) {
+            parts.forEach(part -> part.cancel(true));
+            abortQuietly(key, uploadId);
+            throw e;
+        }
+    }
+
+    private CompletableFuture<CompletedPart> uploadPart(Path file, String key, String uploadId,
+                                                        int partNumber, long offset, long length) throws IOException {
+        acquirePart();
+        CompletableFuture<UploadPartResponse> upload;
+        try {
+            upload = s3AsyncClient.uploadPart(UploadPartRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .partNumber(partNumber)
+                            .contentLength(length)
+                            .build(),
+                    AsyncRequestBody.fromFile(config -> config
+                            .path(file)
+                            .position(offset)
+                            .numBytesToRead(length)));
+        } catch (RuntimeException e) {
+            // Failed before the request started, so whenComplete below would never release the slot
+            partsInFlight.release();
+            throw e;
+        }
+        return upload
+                .whenComplete((response, error) -> partsInFlight.release())
+                .thenApply(response -> CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(response.eTag())
+                        .build());
+    }
+
+    private void downloadRanges(String key, String eTag, Path target, long size) throws IOException {
+        List<CompletableFuture<Void>> ranges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            try {
+                for (long offset = 0; offset < size; offset += partSize) {
+                    long end = Math.min(offset + partSize, size) - 1;
+                    ranges.add(downloadRange(key, eTag, channel, offset, end));
+                }
+                for (CompletableFuture<Void> range : ranges) {
+                    await(range);
+                }
+            } catch (IOException | RuntimeException e) {
+                ranges.forEach(range -> range.cancel(true));
+                throw e;
+            }
+        }
+    }
+
+    private CompletableFuture<Void> downloadRange(String key, String eTag, FileChannel channel,
+                                                  long offset, long end) throws IOException {
+        acquirePart();
+        CompletableFuture<ResponsePublisher<GetObjectResponse>> download;
+        try {
+            download = s3AsyncClient.getObject(GetObjectRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .ifMatch(eTag)
+                            .range("bytes=" + offset + "-" + end)
+                            .build(),
+                    AsyncResponseTransformer.toPublisher());
+        } catch (RuntimeException e) {
+            partsInFlight.release();
+            throw e;
+        }
+        long[] position = {offset};
+        return download
+                .thenCompose(publisher -> publisher.subscribe(buffer -> {
+                    // Chunks of one range arrive in order; positional writes keep ranges independent
+                    try {
+                        position[0] += writeFully(channel, buffer, position[0]);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }))
+                .whenComplete((ignored, error) -> partsInFlight.release());
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private void acquirePart() throws IOException {
+        try {
+            partsInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a transfer slot", e);
+        }
+    }
+
+    private void abortQuietly(String key, String uploadId) {
+        try {
+            s3AsyncClient.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build()).join();
+        } catch (Exception e) {
+            log.warn("Could not abort multipart upload {} for {}: {}", uploadId, key, e.getMessage());
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void record(String direction, String key, long bytes, long elapsedNanos,
+                        Timer timer, DistributionSummary throughput, Counter counter) {
+        timer.record(Duration.ofNanos(elapsedNanos));
+        counter.increment(bytes);
+        double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+        double bytesPerSecond = bytes / seconds;
+        throughput.record(bytesPerSecond);
+        log.info("S3 {} of {} ({} bytes) took {} ms ({} MB/s)", direction, key, bytes,
+                elapsedNanos / 1_000_000, String.format("%.1f", bytesPerSecond / (1024 * 1024)));
+    }
+
+    private static Timer transferTimer(String direction, MeterRegistry registry) {
+        return Timer.builder("auditiq.s3.transfer")
+                .description("Duration of whole-object S3 transfers")
+                .tag("direction", direction)
+                .register(registry);
+    }
+
+    private static DistributionSummary throughputSummary(String direction, MeterRegistry registry) {
+        return DistributionSummary.builder("auditiq.s3.transfer.throughput")
+                .description("Per-transfer S3 throughput")
+                .baseUnit("bytes.per.second")
+                .tag("direction", direction)
+                .register(registry);
+    }
+
+    private static Counter bytesCounter(String direction, MeterRegistry registry) {
+        return Counter.builder("auditiq.s3.transfer.bytes")
+                .description("Bytes moved by S3 transfers")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .register(registry);
+    }
+}
@@ -0,0 +1,243 @@
+package com.auditiq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Request coalescing for expensive, idempotent work such as document analysis. Concurrent
+ * callers with the same (operation, key) share one in-flight CompletableFuture: the first
+ * caller runs the work, the others wait for its result (or its exception).
+ * With singleflight.redis.enabled the leader also takes a short-lived Redis lock, so leaders
+ * on other nodes wait for the result it publishes instead of repeating the work. If the lock
+ * holder fails or the wait runs out, a waiting node does the work itself; Redis trouble only
+ * costs the cross-node coalescing. Callers that joined a flight get their own copy of the
+ * result (a JSON round trip), so the mutable DTOs are never shared between requests.
+ */
+@Slf4j
+@Service
+public class SingleFlight {
+
+    private static final String LOCK_PREFIX = "auditiq:singleflight:lock:";
+    private static final String RESULT_PREFIX = "auditiq:singleflight:result:";
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(250);
+
+    // Delete the lock only if this node still holds it
+    private static final DefaultRedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${singleflight.redis.enabled:false}")
+    private boolean redisEnabled;
+
+    // Longer than the slowest analysis, so the lock does not lapse while the leader still works
+    @Value("${singleflight.redis.lock-ttl-seconds:300}")
+    private long lockTtlSeconds;
+
+    // How long a published result stays readable by nodes that were waiting for it
+    @Value("${singleflight.redis.result-ttl-seconds:30}")
+    private long resultTtlSeconds;
+
+    public SingleFlight(RedisConnectionFactory connectionFactory,
+                        ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry) {
+        this.redis = new StringRedisTemplate(connectionFactory);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("auditiq.singleflight.inflight", inFlight, Map::size)
+                .description("Distinct coalesced operations currently running on this node")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run the work, or join an identical call already in flight. The type is used to read
+     * a result published by another node and to copy the result for joining callers.
+     */
+    public <T> T execute(String operation, String key, Class<T> type, Supplier<T> work) {
+        String flightKey = operation + ":" + key;
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+
+        if (existing != null) {
+            calls(operation, "coalesced").increment();
+            log.info("Joining in-flight {} for {}", operation, key);
+            try {
+                return copy(type.cast(existing.join()), type);
+            } catch (CompletionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+
+        try {
+            T result = redisEnabled ? executeAcrossNodes(operation, flightKey, type, work) : lead(operation, work);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    /**
+     * Hex SHA-256 of a text, for keys of work whose input is content rather than an id
+     */
+    public static String digest(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private <T> T lead(String operation, Supplier<T> work) {
+        calls(operation, "leader").increment();
+        return work.get();
+    }
+
+    private <T> T executeAcrossNodes(String operation, String flightKey, Class<T> type, Supplier<T> work) {
+        String lockKey = LOCK_PREFIX + flightKey;
+        String token = UUID.randomUUID().toString();
+
+        Boolean locked;
+        try {
+            locked = redis.opsForValue().setIfAbsent(lockKey, token, Duration.ofSeconds(lockTtlSeconds));
+        } catch (RuntimeException e) {
+            log.warn("Single-flight lock unavailable, running {} locally: {}", operation, e.getMessage());
+            return lead(operation, work);
+        }
+
+        if (!Boolean.TRUE.equals(locked)) {
+            Optional<T> remote = awaitRemoteResult(lockKey, flightKey, type);
+            if (remote.isPresent()) {
+                calls(operation, "remote").increment();
+                return remote.get();
+            }
+            log.info("No result from the node holding {}, running it here", flightKey);
+            return lead(operation, work);
+        }
+
+        try {
+            T result = lead(operation, work);
+            publish(resultKey(flightKey, token), result);
+            return result;
+        } finally {
+            try {
+                redis.execute(RELEASE_LOCK, List.of(lockKey), token);
+            } catch (RuntimeException e) {
+                log.warn("Could not release single-flight lock {}: {}", lockKey, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Poll until the current lock holder publishes its result. Results are keyed by the holder's
+     * lock token, so an earlier flight's result for the same key is never picked up. Empty when
+     * the lock goes away without a result (the holder failed) or the lock TTL passes.
+     */
+    private <T> Optional<T> awaitRemoteResult(String lockKey, String flightKey, Class<T> type) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(lockTtlSeconds).toNanos();
+        try {
+            String holder = redis.opsForValue().get(lockKey);
+            if (holder == null) {
+                // Released before we looked: its result cannot be told apart from an older one
+                return Optional.empty();
+            }
+            String resultKey = resultKey(flightKey, holder);
+            while (System.nanoTime() - deadline < 0) {
+                String json = redis.opsForValue().get(resultKey);
+                if (json != null) {
+                    return Optional.of(objectMapper.readValue(json, type));
+                }
+                if (!holder.equals(redis.opsForValue().get(lockKey))) {
+                    // Released between our two reads: one last look for the result
+                    json = redis.opsForValue().get(resultKey);
+                    return json != null ? Optional.of(objectMapper.readValue(json, type)) : Optional.empty();
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + lockKey, e);
+        } catch (Exception e) {
+            log.warn("Could not read single-flight result for {}: {}", flightKey, e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    private static String resultKey(String flightKey, String token) {
+        return RESULT_PREFIX + flightKey + ":" + token;
+    }
+
+    /**
+     * A private copy of a shared result, or the result itself if it cannot be copied
+     */
+    private <T> T copy(T result, Class<T> type) {
+        if (result == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(objectMapper.writeValueAsBytes(result), type);
+        } catch (IOException e) {
+            log.warn("Could not copy single-flight result of type {}: {}", type.getSimpleName(), e.getMessage());
+            return result;
+        }
+    }
+
+    private void publish(String resultKey, Object result) {
+        try {
+            redis.opsForValue().set(resultKey, objectMapper.writeValueAsString(result),
+                    Duration.ofSeconds(resultTtlSeconds));
+        } catch (Exception e) {
+            log.warn("Could not publish single-flight result {}: {}", resultKey, e.getMessage());
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new RuntimeException(cause);
+    }
+
+    private Counter calls(String operation, String result) {
+        return Counter.builder("auditiq.singleflight.calls")
+                .description("Calls through the single-flight layer: leader ran the work, coalesced "
+                        + "joined a call on this node, remote used another node's result")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
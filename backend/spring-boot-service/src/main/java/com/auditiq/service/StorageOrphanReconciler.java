@@ -0,0 +1,124 @@
+package com.auditiq.service;
+
+import com.auditiq.model.UploadSession;
+import com.auditiq.repository.UploadSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds stored objects under documents/ that no document row references (failed deletes,
+ * abandoned uploads) and removes them. The bucket is walked one listing page at a time and
+ * each page is checked against the database with a single IN query, so neither key set is
+ * ever loaded in full. Objects younger than the minimum age are skipped: an upload writes its
+ * object before the row that references it. So are objects of resumable upload sessions that
+ * have not registered their document yet; the session expiry cleans those up.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "documents.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class StorageOrphanReconciler {
+
+    private static final String PREFIX = "documents/";
+
+    private final BlobStore blobStore;
+    private final DocumentManagementService documentService;
+    private final UploadSessionRepository sessionRepository;
+    private final Counter scanned;
+    private final Counter orphans;
+    private final Counter deleted;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${documents.reconcile.min-age-hours:24}")
+    private long minAgeHours;
+
+    // Only report orphans, without deleting them
+    @Value("${documents.reconcile.dry-run:false}")
+    private boolean dryRun;
+
+    public StorageOrphanReconciler(BlobStore blobStore,
+                                   DocumentManagementService documentService,
+                                   UploadSessionRepository sessionRepository,
+                                   MeterRegistry meterRegistry) {
+        this.blobStore = blobStore;
+        this.documentService = documentService;
+        this.sessionRepository = sessionRepository;
+        this.scanned = Counter.builder("auditiq.storage.reconcile.scanned")
+                .description("Stored objects checked by the orphan reconciler")
+                .register(meterRegistry);
+        this.orphans = Counter.builder("auditiq.storage.reconcile.orphans")
+                .description("Stored objects found without a referencing document")
+                .register(meterRegistry);
+        this.deleted = Counter.builder("auditiq.storage.reconcile.deleted")
+                .description("Orphaned objects deleted by the reconciler")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${documents.reconcile.cron:0 30 3 * * *}")
+    public void reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Orphan reconciliation already running, skipping");
+            return;
+        }
+        try {
+            Instant cutoff = Instant.now().minus(Duration.ofHours(minAgeHours));
+            AtomicLong pageOrphans = new AtomicLong();
+            AtomicLong pageDeleted = new AtomicLong();
+
+            blobStore.list(PREFIX, page -> {
+                scanned.increment(page.size());
+                List<String> candidates = page.stream()
+                        .filter(blob -> blob.lastModified().isBefore(cutoff))
+                        .map(BlobStore.BlobInfo::key)
+                        .toList();
+                Set<String> unreferenced = documentService.unreferencedKeys(candidates);
+                if (!unreferenced.isEmpty()) {
+                    sessionRepository.findPendingS3Keys(unreferenced, UploadSession.Status.COMPLETED)
+                            .forEach(unreferenced::remove);
+                }
+                if (unreferenced.isEmpty()) {
+                    return;
+                }
+                orphans.increment(unreferenced.size());
+                pageOrphans.addAndGet(unreferenced.size());
+                if (dryRun) {
+                    log.info("Orphaned objects (dry run): {}", unreferenced);
+                    return;
+                }
+                pageDeleted.addAndGet(deleteOrphans(unreferenced));
+            });
+
+            deleted.increment(pageDeleted.get());
+            log.info("Orphan reconciliation done: {} orphan(s) found, {} deleted", pageOrphans.get(), pageDeleted.get());
+        } catch (IOException | RuntimeException e) {
+            log.error("Orphan reconciliation failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int deleteOrphans(Set<String> keys) {
+        try {
+            blobStore.deleteAll(keys);
+            return keys.size();
+        } catch (BlobStore.DeleteFailedException e) {
+            log.error("Could not delete {} orphaned object(s): {}", e.getFailedKeys().size(), e.getFailedKeys());
+            return keys.size() - e.getFailedKeys().size();
+        } catch (IOException e) {
+            log.error("Could not delete orphaned objects: {}", e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.auditiq.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Extracts plain text from one family of document formats.
+ * Implementations read the spooled upload from disk and must not load the whole
+ * file into memory; {@link TextExtractorRegistry} picks the first one that supports a file.
+ */
+public interface TextExtractor {
+
+    /**
+     * Whether this extractor handles the given content type / file name (either may be null)
+     */
+    boolean supports(String contentType, String fileName);
+
+    String extractText(Path file) throws IOException;
+
+    static boolean matches(String contentType, String fileName, String expectedType, String extension) {
+        return expectedType.equalsIgnoreCase(contentType)
+                || (fileName != null && fileName.toLowerCase().endsWith(extension));
+    }
+}
@@ -0,0 +1,23 @@
+package com.auditiq.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * All {@link TextExtractor} beans, consulted in order
+ */
+@Service
+@RequiredArgsConstructor
+public class TextExtractorRegistry {
+
+    private final List<TextExtractor> extractors;
+
+    public Optional<TextExtractor> find(String contentType, String fileName) {
+        return extractors.stream()
+                .filter(extractor -> extractor.supports(contentType, fileName))
+                .findFirst();
+    }
+}
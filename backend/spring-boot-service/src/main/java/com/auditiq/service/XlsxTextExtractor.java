@@ -0,0 +1,103 @@
+package com.auditiq.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Service;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Excel (.xlsx) text via the XSSF event model.
+ * Sheets are streamed row by row through XSSFSheetXMLHandler, so XSSFWorkbook and its
+ * cell objects are never created; each row becomes one tab-separated line.
+ */
+@Slf4j
+@Service
+public class XlsxTextExtractor implements TextExtractor {
+
+    private static final String CONTENT_TYPE =
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    @Override
+    public boolean supports(String contentType, String fileName) {
+        return TextExtractor.matches(contentType, fileName, CONTENT_TYPE, ".xlsx");
+    }
+
+    @Override
+    public String extractText(Path file) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+            DataFormatter formatter = new DataFormatter();
+
+            StringBuilder text = new StringBuilder();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    text.append(sheets.getSheetName()).append('\n');
+
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(
+                            styles, null, strings, new RowWriter(text), formatter, false));
+                    parser.parse(new InputSource(sheet));
+                    text.append('\n');
+                }
+            }
+            log.info("Extracted {} characters from spreadsheet", text.length());
+            return text.toString();
+
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Not a valid Excel workbook: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes formatted cell values as tab-separated lines
+     */
+    private static class RowWriter implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final StringBuilder out;
+        private boolean firstCell;
+
+        RowWriter(StringBuilder out) {
+            this.out = out;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            firstCell = true;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            out.append('\n');
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (!firstCell) {
+                out.append('\t');
+            }
+            firstCell = false;
+            if (formattedValue != null) {
+                out.append(formattedValue);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.auditiq;
+
+import com.auditiq.model.ChatConversation;
+import com.auditiq.model.ChatMessage;
+import com.auditiq.repository.ChatConversationRepository;
+import com.auditiq.repository.ChatMessageRepository;
+import com.auditiq.service.ChatService;
+import com.auditiq.service.ClaudeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ChatService must not hold a database connection while waiting for Claude: with a pool of
+ * two connections, ten chats blocked in the model call must leave the pool free for others.
+ */
+class ChatServiceConcurrencyTest {
+
+    private static final int POOL_SIZE = 2;
+    private static final int CONCURRENT_CHATS = 10;
+
+    private final PooledTransactionManager transactionManager = new PooledTransactionManager(POOL_SIZE);
+    private final ChatConversationRepository conversationRepository = mock(ChatConversationRepository.class);
+    private final ChatMessageRepository messageRepository = mock(ChatMessageRepository.class);
+    private final ClaudeService claudeService = mock(ClaudeService.class);
+    private final List<ChatMessage> savedMessages = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private ChatService chatService;
+    private ExecutorService clients;
+
+    @BeforeEach
+    void setUp() {
+        chatService = new ChatService();
+        ReflectionTestUtils.setField(chatService, "claudeService", claudeService);
+        ReflectionTestUtils.setField(chatService, "conversationRepository", conversationRepository);
+        ReflectionTestUtils.setField(chatService, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(chatService, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(chatService, "summaryExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(chatService, "windowTokens", 8000);
+
+        when(conversationRepository.save(any(ChatConversation.class))).thenAnswer(invocation -> {
+            ChatConversation conversation = invocation.getArgument(0);
+            if (conversation.getId() == null) {
+                conversation.setId(ids.incrementAndGet());
+            }
+            return conversation;
+        });
+        when(conversationRepository.findById(anyLong())).thenAnswer(invocation -> {
+            ChatConversation conversation = new ChatConversation();
+            conversation.setId(invocation.getArgument(0));
+            conversation.setTitle("Existing");
+            return Optional.of(conversation);
+        });
+        when(messageRepository.save(any(ChatMessage.class))).thenAnswer(invocation -> {
+            ChatMessage message = invocation.getArgument(0);
+            message.setId(ids.incrementAndGet());
+            savedMessages.add(message);
+            return message;
+        });
+        when(messageRepository.findByConversationAndIdGreaterThanOrderByIdAsc(any(ChatConversation.class), anyLong()))
+                .thenAnswer(invocation -> {
+                    ChatConversation conversation = invocation.getArgument(0);
+                    List<ChatMessage> history = new ArrayList<>();
+                    for (ChatMessage message : savedMessages) {
+                        if (message.getConversation() == conversation) {
+                            history.add(message);
+                        }
+                    }
+                    return history;
+                });
+
+        clients = Executors.newFixedThreadPool(CONCURRENT_CHATS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    void concurrentChatsDoNotHoldConnectionsDuringClaudeCall() throws Exception {
+        CountDownLatch allInClaude = new CountDownLatch(CONCURRENT_CHATS);
+        CountDownLatch releaseClaude = new CountDownLatch(1);
+        when(claudeService.chat(anyList(), any())).thenAnswer(invocation -> {
+            allInClaude.countDown();
+            releaseClaude.await(10, TimeUnit.SECONDS);
+            return "answer";
+        });
+
+        List<Future<ChatMessage>> chats = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CHATS; i++) {
+            String question = "question " + i;
+            chats.add(clients.submit(() -> chatService.sendMessage(question, null)));
+        }
+
+        assertThat(allInClaude.await(10, TimeUnit.SECONDS))
+                .as("every chat reaches the Claude call despite a pool of " + POOL_SIZE)
+                .isTrue();
+        assertThat(transactionManager.inUse()).isZero();
+
+        // Another endpoint still gets a connection while all chats wait on Claude
+        TransactionTemplate otherEndpoint = new TransactionTemplate(transactionManager);
+        String result = otherEndpoint.execute(status -> "ok");
+        assertThat(result).isEqualTo("ok");
+
+        releaseClaude.countDown();
+        for (Future<ChatMessage> chat : chats) {
+            ChatMessage answer = chat.get(10, TimeUnit.SECONDS);
+            assertThat(answer.getRole()).isEqualTo("assistant");
+            assertThat(answer.getContent()).isEqualTo("answer");
+        }
+        assertThat(savedMessages).filteredOn(message -> "assistant".equals(message.getRole()))
+                .hasSize(CONCURRENT_CHATS);
+        assertThat(transactionManager.inUse()).isZero();
+        assertThat(transactionManager.maxInUse()).isLessThanOrEqualTo(POOL_SIZE);
+    }
+
+    @Test
+    void failedClaudeCallDiscardsMessageAndNewConversation() {
+        when(claudeService.chat(anyList(), any())).thenThrow(new RuntimeException("Claude unavailable"));
+
+        assertThatThrownBy(() -> chatService.sendMessage("question", null))
+                .hasMessage("Claude unavailable");
+
+        ChatMessage userMessage = savedMessages.get(0);
+        verify(messageRepository).deleteById(userMessage.getId());
+        verify(conversationRepository).delete(any(ChatConversation.class));
+        assertThat(savedMessages).noneMatch(message -> "assistant".equals(message.getRole()));
+        assertThat(transactionManager.inUse()).isZero();
+    }
+
+    @Test
+    void failedClaudeCallKeepsExistingConversation() {
+        when(claudeService.generatePolicy(anyString(), anyString()))
+                .thenThrow(new RuntimeException("Claude unavailable"));
+
+        assertThatThrownBy(() -> chatService.generatePolicy("Access Control", "MFA everywhere", 7L))
+                .hasMessage("Claude unavailable");
+
+        verify(messageRepository).deleteById(savedMessages.get(0).getId());
+        verify(conversationRepository, never()).delete(any(ChatConversation.class));
+    }
+
+    /**
+     * Transaction manager over a fixed pool of "connections": a transaction holds one until it
+     * commits or rolls back, and fails like an exhausted Hikari pool when none frees up in time
+     */
+    private static class PooledTransactionManager implements PlatformTransactionManager {
+
+        private final Semaphore connections;
+        private final int size;
+        private int maxInUse;
+
+        PooledTransactionManager(int size) {
+            this.connections = new Semaphore(size);
+            this.size = size;
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            try {
+                if (!connections.tryAcquire(2, TimeUnit.SECONDS)) {
+                    throw new CannotCreateTransactionException("Connection pool exhausted");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CannotCreateTransactionException("Interrupted", e);
+            }
+            synchronized (this) {
+                maxInUse = Math.max(maxInUse, inUse());
+            }
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            connections.release();
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            connections.release();
+        }
+
+        int inUse() {
+            return size - connections.availablePermits();
+        }
+
+        synchronized int maxInUse() {
+            return maxInUse;
+        }
+    }
+}
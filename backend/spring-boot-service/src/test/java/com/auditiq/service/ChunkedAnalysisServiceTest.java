@@ -0,0 +1,119 @@
+package com.auditiq.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Splitting long documents into chunks and merging the per-chunk findings back into one analysis
+ */
+class ChunkedAnalysisServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ChunkedAnalysisService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ChunkedAnalysisService(mock(ClaudeService.class), objectMapper,
+                mock(AsyncTaskExecutor.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "mergeSimilarity", 0.6);
+    }
+
+    @Test
+    void splitPacksWholeSectionsAtHeadings() {
+        String first = "# Access Control\nUsers get the least privilege they need.\n\n";
+        String second = "# Logging\nSecurity events are kept for a year.\n\n";
+        String third = "# Backups\nBackups are encrypted and tested quarterly.\n";
+        int maxChars = first.length() + second.length();
+
+        List<String> chunks = ChunkedAnalysisService.split(first + second + third, maxChars);
+
+        assertThat(chunks).containsExactly((first + second).strip(), third.strip());
+    }
+
+    @Test
+    void splitBreaksOversizedSectionsByParagraphThenSentence() {
+        String paragraph = "Passwords are rotated every ninety days. ";
+        String longParagraph = paragraph.repeat(10).strip();
+        String text = "# Passwords\n" + "Short opening paragraph.\n\n" + longParagraph + "\n\nClosing note.";
+        int maxChars = 100;
+
+        List<String> chunks = ChunkedAnalysisService.split(text, maxChars);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(maxChars));
+        assertThat(String.join(" ", chunks).split("\\s+")).containsExactly(text.split("\\s+"));
+    }
+
+    @Test
+    void splitHardCutsSentencesLongerThanAChunk() {
+        String word = "x".repeat(250);
+
+        List<String> chunks = ChunkedAnalysisService.split(word, 100);
+
+        assertThat(chunks).containsExactly("x".repeat(100), "x".repeat(100), "x".repeat(50));
+    }
+
+    @Test
+    void mergeFoldsSimilarFindingsFromDifferentParts() throws Exception {
+        JsonNode part1 = objectMapper.readTree("""
+                {"executiveSummary": "Access is weak.", "findings": [
+                  {"title": "Missing MFA for administrators", "severity": "MEDIUM", "impactScore": 5,
+                   "description": "No MFA.", "evidence": "Section 2",
+                   "affectedControls": ["A.9.4.2"], "remediationSteps": ["Enable MFA"]}
+                ]}""");
+        JsonNode part2 = objectMapper.readTree("""
+                {"executiveSummary": "Logging is fine.", "findings": [
+                  {"title": "MFA missing for administrators", "severity": "CRITICAL", "impactScore": 3,
+                   "description": "Administrators sign in without MFA.", "evidence": "Section 7",
+                   "affectedControls": ["A.9.4.2", "A.9.2.3"], "remediationSteps": ["Enable MFA", "Audit admins"]},
+                  {"title": "Log retention too short", "severity": "LOW", "impactScore": 2}
+                ]}""");
+
+        ObjectNode merged = service.merge(List.of(part1, part2));
+
+        JsonNode findings = merged.path("findings");
+        assertThat(findings).hasSize(2);
+        JsonNode mfa = findings.get(0);
+        assertThat(mfa.path("severity").asText()).isEqualTo("CRITICAL");
+        assertThat(mfa.path("impactScore").asInt()).isEqualTo(5);
+        assertThat(mfa.path("description").asText()).isEqualTo("Administrators sign in without MFA.");
+        assertThat(mfa.path("evidence").asText()).isEqualTo("Section 2\n\nSection 7");
+        assertThat(texts(mfa.path("affectedControls"))).containsExactly("A.9.4.2", "A.9.2.3");
+        assertThat(texts(mfa.path("remediationSteps"))).containsExactly("Enable MFA", "Audit admins");
+        assertThat(findings.get(1).path("title").asText()).isEqualTo("Log retention too short");
+        assertThat(merged.path("executiveSummary").asText())
+                .isEqualTo("Part 1: Access is weak.\n\nPart 2: Logging is fine.");
+    }
+
+    @Test
+    void mergeKeepsSimilarFindingsOfTheSamePartApart() throws Exception {
+        JsonNode part = objectMapper.readTree("""
+                {"findings": [
+                  {"title": "Missing MFA for administrators", "severity": "HIGH"},
+                  {"title": "Missing MFA for administrators of the VPN", "severity": "MEDIUM"}
+                ]}""");
+
+        ObjectNode merged = service.merge(List.of(part));
+
+        assertThat(merged.path("findings")).hasSize(2);
+        assertThat(merged.path("findings").get(1).path("severity").asText()).isEqualTo("MEDIUM");
+    }
+
+    private static List<String> texts(JsonNode array) {
+        List<String> values = new ArrayList<>();
+        array.forEach(value -> values.add(value.asText()));
+        return values;
+    }
+}
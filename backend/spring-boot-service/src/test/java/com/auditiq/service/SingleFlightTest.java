@@ -0,0 +1,209 @@
+package com.auditiq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Concurrent identical calls must run the work once and each get the outcome; across nodes,
+ * a waiter must only accept the result of the flight that currently holds the lock.
+ */
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+    private static final String LOCK_KEY = "auditiq:singleflight:lock:analyze:document:1";
+    private static final String RESULT_KEY = "auditiq:singleflight:result:analyze:document:1";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SingleFlight singleFlight;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new SingleFlight(mock(RedisConnectionFactory.class), objectMapper, meterRegistry);
+        ReflectionTestUtils.setField(singleFlight, "lockTtlSeconds", 5L);
+        ReflectionTestUtils.setField(singleFlight, "resultTtlSeconds", 5L);
+        callers = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersRunTheWorkOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Result>> calls = submitAll(() -> {
+            runs.incrementAndGet();
+            await(release);
+            return new Result("analysis");
+        });
+        awaitJoined(CALLERS - 1);
+        release.countDown();
+
+        for (Future<Result> call : calls) {
+            assertThat(call.get(5, TimeUnit.SECONDS).getValue()).isEqualTo("analysis");
+        }
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void failureReachesEveryWaiter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Result>> calls = submitAll(() -> {
+            await(release);
+            throw new IllegalStateException("ML service down");
+        });
+        awaitJoined(CALLERS - 1);
+        release.countDown();
+
+        for (Future<Result> call : calls) {
+            assertThatThrownBy(() -> call.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("ML service down");
+        }
+    }
+
+    @Test
+    void joinersGetACopyOfTheLeadersResult() throws Exception {
+        Result leaderResult = new Result("analysis");
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Result>> calls = submitAll(() -> {
+            await(release);
+            return leaderResult;
+        });
+        awaitJoined(CALLERS - 1);
+        release.countDown();
+
+        List<Result> results = new ArrayList<>();
+        for (Future<Result> call : calls) {
+            results.add(call.get(5, TimeUnit.SECONDS));
+        }
+        assertThat(results).extracting(Result::getValue).containsOnly("analysis");
+        assertThat(results).filteredOn(result -> result == leaderResult).hasSize(1);
+    }
+
+    @Test
+    void waiterOnlyAcceptsTheResultOfTheCurrentLockHolder() throws Exception {
+        ValueOperations<String, String> values = redisWithLockHeldBy("token-2");
+        when(values.get(RESULT_KEY + ":token-1")).thenReturn(json(new Result("stale")));
+        when(values.get(RESULT_KEY + ":token-2")).thenReturn(json(new Result("fresh")));
+
+        Result result = singleFlight.execute("analyze", "document:1", Result.class, () -> {
+            throw new AssertionError("the remote result should have been used");
+        });
+
+        assertThat(result.getValue()).isEqualTo("fresh");
+    }
+
+    @Test
+    void waiterRunsTheWorkWhenTheHolderReleasesWithoutAResult() {
+        ValueOperations<String, String> values = redisWithLockHeldBy("token-2");
+        // Still held on the first look, released on the next; only an older flight's result exists
+        when(values.get(LOCK_KEY)).thenReturn("token-2", (String) null);
+        when(values.get(RESULT_KEY + ":token-1")).thenReturn("{\"value\":\"stale\"}");
+
+        Result result = singleFlight.execute("analyze", "document:1", Result.class, () -> new Result("local"));
+
+        assertThat(result.getValue()).isEqualTo("local");
+    }
+
+    @SuppressWarnings("unchecked")
+    private ValueOperations<String, String> redisWithLockHeldBy(String token) {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        when(values.get(LOCK_KEY)).thenReturn(token);
+        ReflectionTestUtils.setField(singleFlight, "redis", redis);
+        ReflectionTestUtils.setField(singleFlight, "redisEnabled", true);
+        return values;
+    }
+
+    private List<Future<Result>> submitAll(Supplier<Result> work) {
+        List<Future<Result>> calls = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            calls.add(callers.submit(() -> singleFlight.execute("analyze", "document:1", Result.class, work)));
+        }
+        return calls;
+    }
+
+    private void awaitJoined(int joiners) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced() < joiners) {
+            assertThat(System.nanoTime() - deadline).as("callers joined in time").isNegative();
+            Thread.sleep(10);
+        }
+    }
+
+    private double coalesced() {
+        var counter = meterRegistry.find("auditiq.singleflight.calls").tag("result", "coalesced").counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private String json(Result result) throws Exception {
+        return objectMapper.writeValueAsString(result);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A mutable DTO, like the analysis results that go through the single-flight layer
+     */
+    static class Result {
+        private String value;
+
+        Result() {
+        }
+
+        Result(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+}